@@ -1,53 +1,70 @@
 package com.example.identity.configuration;
 
-import com.example.identity.dto.request.IntrospectRequest;
-import com.example.identity.service.AuthenticationService;
-import com.nimbusds.jose.JOSEException;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.example.identity.service.TokenRevocationService;
+import com.example.identity.service.VerifiedTokenCache;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
 import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.spec.SecretKeySpec;
-import java.text.ParseException;
-import java.util.Objects;
+import java.time.Duration;
 
+/**
+ * Giải mã access token 1 lần cho mỗi request: parse + verify chữ ký HS512 + kiểm tra hạn
+ * rồi tới blacklist (JwtRevocationValidator). Decoder dựng sẵn khi khởi tạo, dùng chung cho mọi thread.
+ * Token đã verify được cache (VerifiedTokenCache): lần sau chỉ chạy lại kiểm tra hạn và blacklist.
+ */
 @Component
 public class CustomJwtDecoder implements JwtDecoder {
-    @Value("${jwt.signerKey}")
-    String signerKey;
 
-    @Autowired
-    private AuthenticationService authenticationService;
+    private final NimbusJwtDecoder nimbusJwtDecoder;
 
-    private NimbusJwtDecoder nimbusJwtDecoder = null;
+    private final OAuth2TokenValidator<Jwt> jwtValidator;
 
-    @Override
-    public Jwt decode(String token) throws JwtException {
+    private final VerifiedTokenCache verifiedTokenCache;
 
-        try {
-            var response = authenticationService.introspect(IntrospectRequest.builder()
-                    .token(token)
-                    .build());
+    public CustomJwtDecoder(@Value("${jwt.signerKey}") String signerKey,
+                            TokenRevocationService tokenRevocationService,
+                            VerifiedTokenCache verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        SecretKeySpec secretKeySpec = new SecretKeySpec(signerKey.getBytes(), "HS512");
+        nimbusJwtDecoder = NimbusJwtDecoder
+                .withSecretKey(secretKeySpec)
+                .macAlgorithm(MacAlgorithm.HS512)
+                .build();
 
-            if (!response.isValid())
-                throw new JwtException("Token invalid");
-        } catch (JOSEException | ParseException e) {
-            throw new JwtException(e.getMessage());
-        }
+        // Hết hạn là hết hạn, không cho lệch giờ (giống AuthenticationService.verifyToken)
+        jwtValidator = new DelegatingOAuth2TokenValidator<>(
+                new JwtTimestampValidator(Duration.ZERO),
+                new JwtRevocationValidator(tokenRevocationService));
+        nimbusJwtDecoder.setJwtValidator(jwtValidator);
+    }
 
-        if (Objects.isNull(nimbusJwtDecoder)) {
-            SecretKeySpec secretKeySpec = new SecretKeySpec(signerKey.getBytes(), "HS512");
-            nimbusJwtDecoder = NimbusJwtDecoder
-                    .withSecretKey(secretKeySpec)
-                    .macAlgorithm(MacAlgorithm.HS512)
-                    .build();
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        Jwt cached = verifiedTokenCache.get(token);
+        if (cached == null) {
+            Jwt jwt = nimbusJwtDecoder.decode(token);
+            verifiedTokenCache.put(token, jwt);
+            return jwt;
         }
 
-        return nimbusJwtDecoder.decode(token);
+        // Chữ ký đã verify lúc đưa vào cache, chỉ còn hạn và blacklist (có thể đổi từ lúc đó)
+        OAuth2TokenValidatorResult result = jwtValidator.validate(cached);
+        if (result.hasErrors()) {
+            verifiedTokenCache.invalidate(token);
+            throw new JwtValidationException(
+                    result.getErrors().iterator().next().getDescription(), result.getErrors());
+        }
+        return cached;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package com.example.identity.configuration;
+
+import com.example.identity.repository.IdSequence;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Khi khởi động, đẩy cv_seq / cv_section_seq lên trên MAX(id) hiện có.
+ * DB cũ dùng AUTO_INCREMENT nên đã có id, còn sequence mới tạo bắt đầu từ 1 và sẽ sinh id trùng.
+ * Chạy sau khi Hibernate cập nhật schema và trước khi có request nào insert.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class IdSequenceInitializer {
+
+    private final DataSource dataSource;
+
+    public IdSequenceInitializer(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void seedSequences() {
+        try (Connection connection = dataSource.getConnection()) {
+            for (IdSequence sequence : IdSequence.values()) {
+                long floor = sequence.seed(connection);
+                log.info("Sequence {} starts at or above {}", sequence.getSequenceName(), floor);
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            // Không khởi động với sequence có thể sinh id trùng
+            throw new IllegalStateException("Cannot seed id sequences from existing rows", e);
+        }
+    }
+}
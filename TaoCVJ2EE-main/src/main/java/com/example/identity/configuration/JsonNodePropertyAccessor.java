@@ -0,0 +1,171 @@
+package com.example.identity.configuration;
+
+import com.example.identity.mapper.LazyJsonNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.expression.AccessException;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypedValue;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Cho phép Thymeleaf (SpEL) đọc thẳng JsonNode: ${cvData.user.name}, ${section.sectionData[0]}...
+ * Thay cho việc objectMapper.convertValue(node, Map.class) mỗi lần render,
+ * cây JSON được dùng trực tiếp, không copy.
+ * Object/array được trả ra dưới dạng Map/List chỉ đọc (view trên node), nên template vẫn thấy
+ * đúng kiểu như trước: in ra giống Map/List, th:each cho Map.Entry, #maps/#lists, size() dùng được.
+ */
+public class JsonNodePropertyAccessor implements PropertyAccessor {
+
+    @Override
+    public Class<?>[] getSpecificTargetClasses() {
+        return new Class<?>[]{JsonNode.class, JsonObjectMap.class};
+    }
+
+    @Override
+    public boolean canRead(EvaluationContext context, Object target, String name) {
+        // Field không tồn tại trả về null, thay vì lỗi SpEL như MapAccessor
+        if (target instanceof JsonObjectMap) {
+            return true;
+        }
+        if (target instanceof JsonNode node) {
+            return node.isObject() || (node.isArray() && isIndex(name));
+        }
+        return false;
+    }
+
+    @Override
+    public TypedValue read(EvaluationContext context, Object target, String name) throws AccessException {
+        if (target instanceof JsonObjectMap map) {
+            return new TypedValue(map.get(name));
+        }
+        JsonNode node = (JsonNode) target;
+        JsonNode child = node.isArray() ? node.get(Integer.parseInt(name)) : node.get(name);
+        return new TypedValue(unwrap(child));
+    }
+
+    @Override
+    public boolean canWrite(EvaluationContext context, Object target, String name) {
+        return false;
+    }
+
+    @Override
+    public void write(EvaluationContext context, Object target, String name, Object newValue) throws AccessException {
+        throw new AccessException("JsonNode in render model is read-only");
+    }
+
+    /**
+     * Đổi JsonNode sang giá trị Thymeleaf dùng được:
+     * scalar -> String/Number/Boolean, array -> List view, object -> Map view (không copy)
+     */
+    public static Object unwrap(JsonNode node) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            return null;
+        }
+        if (node.isTextual()) {
+            return node.textValue();
+        }
+        if (node.isNumber()) {
+            return node.numberValue();
+        }
+        if (node.isBoolean()) {
+            return node.booleanValue();
+        }
+        if (node.isArray()) {
+            return new JsonArrayList((ArrayNode) LazyJsonNode.unwrap(node));
+        }
+        if (node.isObject()) {
+            return new JsonObjectMap((ObjectNode) LazyJsonNode.unwrap(node));
+        }
+        return node;
+    }
+
+    private static boolean isIndex(String name) {
+        return !name.isEmpty() && name.chars().allMatch(Character::isDigit);
+    }
+
+    /**
+     * List chỉ đọc bọc ArrayNode, phần tử được unwrap khi truy cập (dùng cho th:each)
+     */
+    public static class JsonArrayList extends AbstractList<Object> implements RandomAccess {
+
+        private final ArrayNode node;
+
+        JsonArrayList(ArrayNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public Object get(int index) {
+            return unwrap(node.get(index));
+        }
+
+        @Override
+        public int size() {
+            return node.size();
+        }
+    }
+
+    /**
+     * Map chỉ đọc bọc ObjectNode (giữ thứ tự field), giá trị được unwrap khi truy cập
+     */
+    public static class JsonObjectMap extends AbstractMap<String, Object> {
+
+        private final ObjectNode node;
+
+        JsonObjectMap(ObjectNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return key instanceof String name ? unwrap(node.get(name)) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String name && node.has(name);
+        }
+
+        @Override
+        public int size() {
+            return node.size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<Map.Entry<String, JsonNode>> fields = node.properties().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return fields.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            Map.Entry<String, JsonNode> field = fields.next();
+                            return new SimpleImmutableEntry<>(field.getKey(), unwrap(field.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return node.size();
+                }
+            };
+        }
+    }
+}
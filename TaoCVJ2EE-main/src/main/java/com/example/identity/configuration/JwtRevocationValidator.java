@@ -0,0 +1,42 @@
+package com.example.identity.configuration;
+
+import com.example.identity.exception.AppException;
+import com.example.identity.service.TokenRevocationService;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+/**
+ * Từ chối token có jti đã bị thu hồi (logout/refresh). Chạy sau khi chữ ký và hạn đã hợp lệ.
+ * Chưa kiểm tra được blacklist (store lỗi trước khi nạp xong) thì cũng từ chối: 401 thay vì 500.
+ */
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JwtRevocationValidator implements OAuth2TokenValidator<Jwt> {
+
+    private static final OAuth2Error REVOKED = new OAuth2Error(
+            OAuth2ErrorCodes.INVALID_TOKEN, "Token has been revoked", null);
+
+    private static final OAuth2Error REVOCATION_UNAVAILABLE = new OAuth2Error(
+            OAuth2ErrorCodes.INVALID_TOKEN, "Token revocation check is unavailable", null);
+
+    TokenRevocationService tokenRevocationService;
+
+    @Override
+    public OAuth2TokenValidatorResult validate(Jwt jwt) {
+        String jti = jwt.getId();
+        try {
+            if (jti == null || tokenRevocationService.isRevoked(jti)) {
+                return OAuth2TokenValidatorResult.failure(REVOKED);
+            }
+        } catch (AppException e) {
+            return OAuth2TokenValidatorResult.failure(REVOCATION_UNAVAILABLE);
+        }
+        return OAuth2TokenValidatorResult.success();
+    }
+}
@@ -6,6 +6,8 @@ import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
 import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.example.identity.service.RenderCacheService;
+import com.example.identity.service.TokenRevocationService;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -13,6 +15,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -64,4 +68,21 @@ public class RedisConfig {
                                 .cacheDefaults(cacheConfig)
                                 .build();
         }
+
+        /**
+         * Lắng nghe kênh invalidate để xóa cache render L1 trên mọi node,
+         * và kênh thu hồi token để cập nhật blacklist JWT trong bộ nhớ
+         */
+        @Bean
+        public RedisMessageListenerContainer redisMessageListenerContainer(
+                        RedisConnectionFactory connectionFactory, RenderCacheService renderCacheService,
+                        TokenRevocationService tokenRevocationService) {
+                RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+                container.setConnectionFactory(connectionFactory);
+                container.addMessageListener(renderCacheService,
+                                new ChannelTopic(RenderCacheService.INVALIDATION_CHANNEL));
+                container.addMessageListener(tokenRevocationService,
+                                new ChannelTopic(TokenRevocationService.REVOCATION_CHANNEL));
+                return container;
+        }
 }
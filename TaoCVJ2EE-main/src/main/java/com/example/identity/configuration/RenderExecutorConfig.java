@@ -0,0 +1,34 @@
+package com.example.identity.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class RenderExecutorConfig {
+
+    @Value("${render.executor.pool-size:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int poolSize;
+
+    @Value("${render.executor.queue-capacity:100}")
+    private int queueCapacity;
+
+    /**
+     * Pool giới hạn cho batch render. Khi queue đầy, thread gọi tự render (CallerRuns)
+     * nên request gửi quá nhiều sẽ bị chậm lại thay vì làm tràn bộ nhớ.
+     */
+    @Bean(name = "renderExecutor")
+    public ThreadPoolTaskExecutor renderExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("render-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.identity.configuration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.expression.ThymeleafEvaluationContext;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tạo Thymeleaf Context có gắn JsonNodePropertyAccessor,
+ * để model render có thể chứa JsonNode trực tiếp.
+ * JsonNode ở gốc model được bọc thành Map/List view như khi truy cập qua accessor.
+ */
+@Component
+@RequiredArgsConstructor
+public class ThymeleafContextFactory {
+
+    private static final JsonNodePropertyAccessor JSON_NODE_ACCESSOR = new JsonNodePropertyAccessor();
+
+    private final ApplicationContext applicationContext;
+
+    public Context create(Map<String, Object> variables) {
+        Map<String, Object> model = new HashMap<>(variables);
+        model.replaceAll((name, value) -> value instanceof JsonNode node ? JsonNodePropertyAccessor.unwrap(node) : value);
+        Context context = new Context(Locale.getDefault(), model);
+
+        // Evaluation context bị Thymeleaf ghi đè expression objects mỗi lần render nên không dùng chung
+        ThymeleafEvaluationContext evaluationContext = new ThymeleafEvaluationContext(applicationContext, null);
+        evaluationContext.addPropertyAccessor(JSON_NODE_ACCESSOR);
+        context.setVariable(ThymeleafEvaluationContext.THYMELEAF_EVALUATION_CONTEXT_CONTEXT_VARIABLE_NAME, evaluationContext);
+
+        return context;
+    }
+}
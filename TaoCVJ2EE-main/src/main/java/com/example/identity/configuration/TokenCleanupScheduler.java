@@ -1,28 +1,143 @@
 package com.example.identity.configuration;
 
 import com.example.identity.repository.InvalidatedTokenRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.Calendar;
+import java.time.Duration;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
+/**
+ * Dọn bảng invalidated_token, chỉ cần khi blacklist lưu bằng JPA (Redis tự hết hạn theo TTL).
+ * Xóa theo lô nhỏ (mỗi lô một transaction, nghỉ giữa các lô) để không khóa bảng lâu làm nghẽn login.
+ * Chỉ một node quét mỗi lượt nhờ lock trong Redis.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
+@ConditionalOnProperty(name = "auth.revocation.store", havingValue = "jpa")
 public class TokenCleanupScheduler {
 
+    static final String LOCK_KEY = "token-cleanup:lock";
+
+    // Chỉ xóa lock nếu vẫn là của node này (lock có thể đã hết hạn và node khác đã lấy)
+    private static final RedisScript<Long> RELEASE_LOCK = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
     private final InvalidatedTokenRepository invalidatedTokenRepository;
 
-    @Scheduled(fixedRate = 3600000)
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private final Counter deletedCounter;
+
+    private final Timer sweepTimer;
+
+    private final int batchSize;
+
+    private final long pauseMillis;
+
+    private final Duration lockTtl;
+
+    // Token refresh được tới expirationTime + (refreshable - valid), sau đó row mới xóa được
+    private final long retentionAfterExpiryMillis;
+
+    public TokenCleanupScheduler(InvalidatedTokenRepository invalidatedTokenRepository,
+                                 RedisTemplate<String, String> redisTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${token.cleanup.batch-size:1000}") int batchSize,
+                                 @Value("${token.cleanup.pause-ms:200}") long pauseMillis,
+                                 @Value("${token.cleanup.lock-ttl-ms:600000}") long lockTtlMillis,
+                                 @Value("${jwt.valid-duration}") long validDuration,
+                                 @Value("${jwt.refreshable-duration}") long refreshableDuration) {
+        this.invalidatedTokenRepository = invalidatedTokenRepository;
+        this.redisTemplate = redisTemplate;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        this.lockTtl = Duration.ofMillis(lockTtlMillis);
+        this.retentionAfterExpiryMillis = Math.max(0, refreshableDuration - validDuration) * 1000;
+        this.deletedCounter = Counter.builder("token.cleanup.deleted")
+                .description("Invalidated token rows deleted by the cleanup job")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("token.cleanup.duration")
+                .description("Duration of one cleanup run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedRateString = "${token.cleanup.interval:3600000}")
     public void cleanupExpiredTokens() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.HOUR_OF_DAY, -9); // trừ 9 tiếng
-        Date threshold = cal.getTime();
+        String owner = UUID.randomUUID().toString();
+        Boolean locked;
+        try {
+            locked = redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, owner, lockTtl);
+        } catch (DataAccessException e) {
+            // Không có Redis vẫn dọn: xóa trùng giữa các node vô hại, chỉ tốn công
+            log.warn("Token cleanup lock unavailable, sweeping without it: {}", e.getMessage());
+            sweepTimer.record(this::sweep);
+            return;
+        }
+        if (!Boolean.TRUE.equals(locked)) {
+            log.debug("Token cleanup is running on another node");
+            return;
+        }
+
+        try {
+            sweepTimer.record(this::sweep);
+        } finally {
+            try {
+                redisTemplate.execute(RELEASE_LOCK, List.of(LOCK_KEY), owner);
+            } catch (DataAccessException e) {
+                log.warn("Could not release token cleanup lock, it expires after {}: {}", lockTtl, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Xóa từng lô batchSize row cho tới khi hết row hết hạn.
+     * Dừng sớm khi đã chạy quá nửa TTL của lock để không chồng lên lượt của node khác.
+     */
+    int sweep() {
+        Date threshold = new Date(System.currentTimeMillis() - retentionAfterExpiryMillis);
+        long deadline = System.nanoTime() + lockTtl.toNanos() / 2;
+        int deleted = 0;
+
+        while (System.nanoTime() < deadline) {
+            // Step 1: Lấy một lô id theo index expiration_time
+            List<String> ids = invalidatedTokenRepository.findExpiredIds(threshold, Limit.of(batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            // Step 2: Xóa lô đó trong transaction riêng, khóa chỉ giữ trong thời gian ngắn
+            invalidatedTokenRepository.deleteAllByIdInBatch(ids);
+            deleted += ids.size();
+            deletedCounter.increment(ids.size());
+            if (ids.size() < batchSize) {
+                break;
+            }
+
+            // Step 3: Nghỉ để login/logout chen vào giữa các lô
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
 
-        invalidatedTokenRepository.deleteExpiredTokens(threshold);
-        log.info(" Dọn dẹp token có expirationTime + 9h < now (trước {}): {}", threshold, new Date());
+        log.info("Token cleanup deleted {} rows expired before {}", deleted, threshold);
+        return deleted;
     }
-}
\ No newline at end of file
+}
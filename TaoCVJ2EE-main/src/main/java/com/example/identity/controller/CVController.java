@@ -1,21 +1,35 @@
 package com.example.identity.controller;
 
 import com.example.identity.dto.request.ApiResponse;
+import com.example.identity.dto.request.BatchRenderRequest;
 import com.example.identity.dto.request.CVRequest;
 import com.example.identity.dto.response.CVResponse;
+import com.example.identity.dto.response.CVSummaryResponse;
+import com.example.identity.dto.response.CursorPageResponse;
+import com.example.identity.dto.response.ExportJobResponse;
+import com.example.identity.enums.ExportFormat;
+import com.example.identity.exception.AppException;
+import com.example.identity.service.BatchRenderService;
 import com.example.identity.service.CVService;
+import com.example.identity.service.ExportJobService;
+import com.example.identity.service.JsonMergePatch;
 import com.example.identity.service.TemplateRenderingService;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.File;
-import java.util.List;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.UUID;
 
@@ -27,14 +41,17 @@ import java.util.UUID;
 public class CVController {
     CVService cvService;
     TemplateRenderingService templateRenderingService;
+    BatchRenderService batchRenderService;
+    ExportJobService exportJobService;
 
     /*----------------------------------------CV Management----------------------------------------------------------------*/
     //GET /api/cvs                          Danh sách CV của user
     @GetMapping()
-    public ApiResponse<List<CVResponse>> getAllMyCV() {
-        return ApiResponse.<List<CVResponse>>builder()
+    public ApiResponse<CursorPageResponse<CVSummaryResponse>> getAllMyCV(@RequestParam(required = false) String cursor,
+                                                                         @RequestParam(required = false) Integer size) {
+        return ApiResponse.<CursorPageResponse<CVSummaryResponse>>builder()
                 .message("Tải danh sách CV thành công")
-                .result(cvService.getAllMyCV())
+                .result(cvService.getAllMyCV(cursor, size))
                 .build();
     }
 
@@ -64,6 +81,24 @@ public class CVController {
                 .build();
     }
 
+    //PATCH   /api/cvs/{id}/data              Autosave cvData (JSON Merge Patch, chỉ gửi phần thay đổi)
+    @PatchMapping(value = "/{id}/data", consumes = {JsonMergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ApiResponse<Map<String, LocalDateTime>> patchData(@PathVariable Long id, @RequestBody JsonNode patch) {
+        return ApiResponse.<Map<String, LocalDateTime>>builder()
+                .message("Cập nhật CV thành công")
+                .result(Map.of("updatedAt", cvService.patchCVData(id, patch)))
+                .build();
+    }
+
+    //PATCH   /api/cvs/{id}/customization     Autosave customization (JSON Merge Patch)
+    @PatchMapping(value = "/{id}/customization", consumes = {JsonMergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ApiResponse<Map<String, LocalDateTime>> patchCustomization(@PathVariable Long id, @RequestBody JsonNode patch) {
+        return ApiResponse.<Map<String, LocalDateTime>>builder()
+                .message("Cập nhật CV thành công")
+                .result(Map.of("updatedAt", cvService.patchCustomization(id, patch)))
+                .build();
+    }
+
     //POST    /api/cvs/{id}                   Xóa CV
     @DeleteMapping("/{id}")
     public ApiResponse<Map<String, Boolean>> delete(@PathVariable Long id) {
@@ -92,30 +127,79 @@ public class CVController {
     /**
      * Render CV as HTML
      * GET /api/cvs/{id}/render
-     * Returns complete HTML of CV with template applied
+     * Streams complete HTML of CV with template applied (chunked, flushed after </head>)
+     * Lỗi sau khi đã flush head thì status vẫn là 200, cuối trang có
+     * TemplateRenderingService.RENDER_ERROR_MARKER (phần tử [data-render-error]).
      */
     @GetMapping(value = "/{id}/render", produces = MediaType.TEXT_HTML_VALUE)
-    public ResponseEntity<String> renderCV(@PathVariable Long id) {
+    public void renderCV(@PathVariable Long id, HttpServletResponse response) throws IOException {
         log.info("Rendering CV: {}", id);
-        String html = cvService.renderCVAsHtml(id);
-        return ResponseEntity.ok()
-                .contentType(MediaType.TEXT_HTML)
-                .body(html);
+        response.setContentType(MediaType.TEXT_HTML_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try {
+            cvService.renderCVAsHtml(id, response.getWriter());
+        } catch (AppException e) {
+            // Chưa commit: bỏ phần HTML đã buffer (và writer đã mở) để GlobalExceptionHandler trả JSON lỗi
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
     }
 
-//  POST   /api/cvs/{id}/export/pdf         // Generate PDF
-    @PostMapping("/{id}/export/pdf")
-    public ResponseEntity<File> exportPdf(@PathVariable Long id) {
-        return new ResponseEntity<>(new File(id+".pdf"), HttpStatus.OK);
+    /**
+     * Render nhiều CV song song
+     * POST /api/cvs/render/batch
+     * Trả về NDJSON, mỗi dòng {"id", "html"} hoặc {"id", "error"}, ghi ra ngay khi từng CV render xong
+     */
+    @PostMapping(value = "/render/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void renderBatch(@RequestBody BatchRenderRequest request, HttpServletResponse response) throws IOException {
+        log.info("Batch rendering {} CVs", request.getIds() == null ? 0 : request.getIds().size());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        batchRenderService.renderBatch(request.getIds(), response.getWriter());
     }
 
+//  POST   /api/cvs/{id}/export/pdf         // Tạo job export PDF (chạy nền)
+    @PostMapping("/{id}/export/pdf")
+    public ResponseEntity<ApiResponse<ExportJobResponse>> exportPdf(@PathVariable Long id) {
+        return submitExport(id, ExportFormat.PDF);
+    }
 
-//  POST   /api/cvs/{id}/export/docx        // Generate DOCX
+//  POST   /api/cvs/{id}/export/docx        // Tạo job export DOCX (chạy nền)
     @PostMapping("/{id}/export/docx")
-    public File exportDocx(@PathVariable Long id) {
-        return new File("path");
+    public ResponseEntity<ApiResponse<ExportJobResponse>> exportDocx(@PathVariable Long id) {
+        return submitExport(id, ExportFormat.DOCX);
     }
 
+//  GET    /api/cvs/export/jobs/{jobId}     // Trạng thái job export
+    @GetMapping("/export/jobs/{jobId}")
+    public ApiResponse<ExportJobResponse> getExportJob(@PathVariable String jobId) {
+        return ApiResponse.<ExportJobResponse>builder()
+                .result(exportJobService.getJob(jobId))
+                .build();
+    }
+
+//  GET    /api/cvs/export/jobs/{jobId}/artifact   // Tải file khi job xong
+    @GetMapping(value = "/export/jobs/{jobId}/artifact", produces = MediaType.APPLICATION_PDF_VALUE)
+    public void downloadExport(@PathVariable String jobId, HttpServletResponse response) throws IOException {
+        ExportJobResponse job = exportJobService.getFinishedJob(jobId);
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("cv-" + job.getCvId() + ".pdf")
+                .build()
+                .toString());
+        exportJobService.writeArtifact(jobId, response.getOutputStream());
+    }
+
+    private ResponseEntity<ApiResponse<ExportJobResponse>> submitExport(Long id, ExportFormat format) {
+        log.info("Submitting {} export for CV {}", format, id);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.<ExportJobResponse>builder()
+                        .message("Đã tạo job export")
+                        .result(exportJobService.submit(id, format))
+                        .build());
+    }
 
 //  POST   /api/cvs/{id}/share              // Tạo share link
     @PostMapping("/{id}/share")
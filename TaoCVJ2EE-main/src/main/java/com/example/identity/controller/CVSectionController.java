@@ -4,10 +4,13 @@ import com.example.identity.dto.request.ApiResponse;
 import com.example.identity.dto.request.CVSectionRequestReorder;
 import com.example.identity.entity.CVSection;
 import com.example.identity.service.CVSectionService;
+import com.example.identity.service.JsonMergePatch;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -45,6 +48,14 @@ public class CVSectionController {
                 .message("Thành công")
                 .build();
     }
+// Autosave sectionData (JSON Merge Patch, chỉ gửi phần thay đổi)
+    @PatchMapping(value = "/{sectionId}/data", consumes = {JsonMergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ApiResponse<CVSection> patchSectionData(@PathVariable Long sectionId, @RequestBody JsonNode patch) {
+        return ApiResponse.<CVSection>builder()
+                .result(cvSectionService.patchSectionData(sectionId, patch))
+                .message("Thành công")
+                .build();
+    }
 // Thêm section
     @PostMapping("/{cvId}")
     public ApiResponse<CVSection> createCVSection(@PathVariable Long cvId, @RequestBody CVSection cvSection) {
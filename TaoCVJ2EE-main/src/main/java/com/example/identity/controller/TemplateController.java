@@ -3,19 +3,24 @@ package com.example.identity.controller;
 import com.example.identity.dto.TemplateFilterDTO;
 import com.example.identity.dto.request.ApiResponse;
 import com.example.identity.dto.request.TemplateRequest;
+import com.example.identity.dto.response.CursorPageResponse;
 import com.example.identity.dto.response.TemplateResponse;
 import com.example.identity.entity.Template;
 import com.example.identity.service.TemplateService;
-import com.example.identity.service.TemplateRenderingService;
+import com.example.identity.service.TemplatePreviewService;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 @Slf4j
 @RestController
@@ -24,13 +29,14 @@ import java.util.List;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class TemplateController {
     TemplateService templateService;
-    TemplateRenderingService templateRenderingService;
+    TemplatePreviewService templatePreviewService;
 
 //    GET    /api/templates                    // Lấy danh sách templates
     @GetMapping()
-    public ApiResponse<List<TemplateResponse>> findAll() {
-        List<TemplateResponse> list = templateService.findAll();
-        return ApiResponse.<List<TemplateResponse>>builder()
+    public ApiResponse<CursorPageResponse<TemplateResponse>> findAll(@RequestParam(required = false) String cursor,
+                                                                     @RequestParam(required = false) Integer size) {
+        CursorPageResponse<TemplateResponse> list = templateService.findAll(cursor, size);
+        return ApiResponse.<CursorPageResponse<TemplateResponse>>builder()
                 .message("Success")
                 .result(list)
                 .build();
@@ -65,9 +71,11 @@ public class TemplateController {
     }
 //    GET    /api/templates/filter?category=IT&style=modern&...        // Filter
     @GetMapping("/filter")
-    public ApiResponse<List<TemplateResponse>> filter(TemplateFilterDTO filter) {
-        List<TemplateResponse> templates = templateService.filter(filter);
-        return ApiResponse.<List<TemplateResponse>>builder()
+    public ApiResponse<CursorPageResponse<TemplateResponse>> filter(TemplateFilterDTO filter,
+                                                                    @RequestParam(required = false) String cursor,
+                                                                    @RequestParam(required = false) Integer size) {
+        CursorPageResponse<TemplateResponse> templates = templateService.filter(filter, cursor, size);
+        return ApiResponse.<CursorPageResponse<TemplateResponse>>builder()
                 .message("Success")
                 .result(templates)
                 .build();
@@ -76,16 +84,38 @@ public class TemplateController {
     /**
      * Preview template với sample data
      * GET /api/templates/{id}/preview
-     * Returns HTML preview
+     * Returns pre-rendered HTML preview (gzip nếu client hỗ trợ) với ETag + Cache-Control
      */
     @GetMapping(value = "/{id}/preview", produces = MediaType.TEXT_HTML_VALUE)
-    public ResponseEntity<String> previewTemplate(@PathVariable Long id) {
+    public ResponseEntity<byte[]> previewTemplate(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("Previewing template: {}", id);
         Template template = templateService.getTemplateById(id);
-        String html = templateRenderingService.renderTemplatePreview(template);
-        return ResponseEntity.ok()
-                .contentType(MediaType.TEXT_HTML)
-                .body(html);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = templatePreviewService.etagOf(template, gzip);
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofHours(1)).cachePublic();
+
+        if (TemplatePreviewService.matchesIfNoneMatch(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        byte[] gzipped = templatePreviewService.getGzippedPreview(template);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzipped);
+        }
+        return response.body(TemplatePreviewService.gunzip(gzipped).getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -4,6 +4,7 @@ import com.example.identity.dto.request.ApiResponse;
 import com.example.identity.dto.request.UserCreationRequest;
 import com.example.identity.dto.request.UserStatusRequest;
 import com.example.identity.dto.request.UserUpdateRequest;
+import com.example.identity.dto.response.CursorPageResponse;
 import com.example.identity.dto.response.UserResponse;
 import com.example.identity.service.UserService;
 import jakarta.validation.Valid;
@@ -14,8 +15,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @Slf4j
 @RestController
 @RequestMapping("/users")
@@ -32,13 +31,14 @@ public class UserController {
     }
 
     @GetMapping
-    ApiResponse<List<UserResponse>> getUsers(){
+    ApiResponse<CursorPageResponse<UserResponse>> getUsers(@RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer size){
         var authentication = SecurityContextHolder.getContext().getAuthentication();
         log.info("Username : {}", authentication.getName());
         authentication.getAuthorities().forEach(grantedAuthority ->
                log.info(grantedAuthority.getAuthority()));
-        return ApiResponse.<List<UserResponse>>builder()
-                .result(userService.getUsers())
+        return ApiResponse.<CursorPageResponse<UserResponse>>builder()
+                .result(userService.getUsers(cursor, size))
                 .build();
     }
 
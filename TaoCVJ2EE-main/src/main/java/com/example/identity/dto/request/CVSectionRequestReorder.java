@@ -12,5 +12,6 @@ import lombok.experimental.FieldDefaults;
 public class CVSectionRequestReorder {
     @Id
     Long id;
-    int orderIndex;
+    // Integer để phân biệt thiếu orderIndex (null) với 0
+    Integer orderIndex;
 }
@@ -0,0 +1,22 @@
+package com.example.identity.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Thông tin rút gọn của CV cho màn danh sách, không kèm cvData và sections
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CVSummaryResponse {
+    Long id;
+    String name;
+    String thumbnailUrl;
+    LocalDateTime updatedAt;
+}
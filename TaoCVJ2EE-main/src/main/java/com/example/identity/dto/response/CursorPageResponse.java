@@ -0,0 +1,24 @@
+package com.example.identity.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Một trang kết quả phân trang theo keyset.
+ * nextCursor là chuỗi opaque, client gửi lại nguyên vẹn để lấy trang tiếp theo.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPageResponse<T> {
+    List<T> items;
+    String nextCursor;
+    boolean hasNext;
+}
@@ -0,0 +1,31 @@
+package com.example.identity.dto.response;
+
+import com.example.identity.enums.ExportFormat;
+import com.example.identity.enums.ExportJobStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExportJobResponse {
+    String jobId;
+    // User đã tạo job, chỉ user này xem được trạng thái và tải file
+    String username;
+    Long cvId;
+    ExportFormat format;
+    ExportJobStatus status;
+    String error;
+    String downloadUrl;
+    // Hash nội dung của PDF trong cache disk (PdfRenderService)
+    String artifactHash;
+    LocalDateTime createdAt;
+    LocalDateTime finishedAt;
+}
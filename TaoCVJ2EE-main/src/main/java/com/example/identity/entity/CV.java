@@ -6,8 +6,11 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -15,7 +18,11 @@ import java.util.Objects;
 import java.util.UUID;
 
 @Entity
-@Table(name = "cv")
+@DynamicUpdate // UPDATE chỉ ghi các cột thay đổi, không ghi lại cả các cột JSON lớn
+@Table(name = "cv", indexes = {
+        // Phục vụ danh sách CV của user phân trang keyset (updatedAt, id)
+        @Index(name = "idx_cv_user_updated", columnList = "user_id, updated_at, id")
+})
 @Getter
 @Setter
 @ToString
@@ -26,7 +33,9 @@ import java.util.UUID;
 public class CV {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence pooled (lấy 50 id mỗi lần) thay cho IDENTITY để Hibernate batch được INSERT
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cv_seq")
+    @SequenceGenerator(name = "cv_seq", sequenceName = "cv_seq", allocationSize = 50)
     Long id;
 
     // 👇 Liên kết đến User
@@ -45,7 +54,7 @@ public class CV {
     String name; // VD: "CV apply Google"
 
     @Convert(converter = JsonNodeConverter.class)
-    @Lob
+    @JdbcTypeCode(SqlTypes.JSON)
     JsonNode tags; // JSON array hoặc table riêng
 
     @Column(name = "share_token", unique = true)
@@ -58,12 +67,12 @@ public class CV {
     String qrCodeUrl;
 
     @Convert(converter = JsonNodeConverter.class)
-    @Lob
+    @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "cv_data")
     JsonNode cvData; // chứa toàn bộ nội dung
 
     @Convert(converter = JsonNodeConverter.class)
-    @Lob
+    @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "section_order")
     JsonNode sectionOrder; // thứ tự các sections
 
@@ -72,7 +81,7 @@ public class CV {
     List<CVSection> sections;
 
     @Convert(converter = JsonNodeConverter.class)
-    @Lob
+    @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "customization")
     JsonNode customization; // colors, fonts, spacing...
 
@@ -6,12 +6,19 @@ import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.SqlTypes;
 
 import java.util.Objects;
 
 @Entity
-@Table(name = "cv_section")
+@DynamicUpdate // UPDATE chỉ ghi các cột thay đổi, không ghi lại cả các cột JSON lớn
+@Table(name = "cv_section", indexes = {
+        // Lấy sections của CV theo thứ tự mà không cần sort trên bảng
+        @Index(name = "idx_cv_section_cv_order", columnList = "cv_id, order_index")
+})
 @Getter
 @Setter
 @ToString
@@ -22,7 +29,9 @@ import java.util.Objects;
 public class CVSection {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence pooled thay cho IDENTITY: sections của 1 CV được insert trong 1 batch
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cv_section_seq")
+    @SequenceGenerator(name = "cv_section_seq", sequenceName = "cv_section_seq", allocationSize = 50)
     Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -35,7 +44,7 @@ public class CVSection {
     String sectionType; // personal_info, experience, education, skills...
 
     @Convert(converter = JsonNodeConverter.class)
-    @Lob
+    @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "section_data")
     JsonNode sectionData;
 
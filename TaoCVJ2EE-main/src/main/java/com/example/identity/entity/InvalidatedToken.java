@@ -2,6 +2,8 @@ package com.example.identity.entity;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
@@ -14,6 +16,10 @@ import java.util.Date;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        // Job dọn dẹp xóa theo lô token hết hạn, tránh quét cả bảng
+        @Index(name = "idx_invalidated_token_expiration", columnList = "expiration_time")
+})
 public class InvalidatedToken {
     @Id
     String id;
@@ -7,8 +7,10 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
@@ -39,7 +41,7 @@ public class Template {
     String thumbnailUrl;
 
     @Convert(converter = JsonNodeConverter.class)
-    @Lob
+    @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "template_config")
     JsonNode templateConfig; // JSON: layout, colors, fonts...
 
@@ -53,7 +55,7 @@ public class Template {
     // ========== NEW FIELDS FOR THYMELEAF SYSTEM ==========
 
     @Convert(converter = JsonNodeConverter.class)
-    @Lob
+    @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "sections_definition")
     JsonNode sectionsDefinition; // Defines which sections this template supports
 
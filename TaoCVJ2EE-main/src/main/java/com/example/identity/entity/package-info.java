@@ -0,0 +1,9 @@
+/**
+ * Mọi cột JsonNode dùng chung cách so sánh/snapshot theo nội dung JSON
+ */
+@JavaTypeRegistration(javaType = JsonNode.class, descriptorClass = JsonNodeJavaType.class)
+package com.example.identity.entity;
+
+import com.example.identity.mapper.JsonNodeJavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.hibernate.annotations.JavaTypeRegistration;
@@ -0,0 +1,6 @@
+package com.example.identity.enums;
+
+public enum ExportFormat {
+    PDF,
+    DOCX
+}
@@ -0,0 +1,8 @@
+package com.example.identity.enums;
+
+public enum ExportJobStatus {
+    QUEUED,     // đang chờ worker
+    RUNNING,    // đang render
+    DONE,       // artifact sẵn sàng để tải
+    FAILED      // lỗi, có thể submit lại
+}
@@ -37,6 +37,22 @@ public enum ErrorCode {
     TEMPLATE_RENDER_FAILED(1013, "Failed to render template" , HttpStatus.INTERNAL_SERVER_ERROR),
     TEMPLATE_FILE_NOT_FOUND(1014, "Template file not found" , HttpStatus.NOT_FOUND),
     FEATURE_NOT_IMPLEMENTED(1015, "Feature not yet implemented" , HttpStatus.NOT_IMPLEMENTED),
+    BATCH_RENDER_INVALID(1016, "Batch render must contain between 1 and max-size CV ids" , HttpStatus.BAD_REQUEST),
+    PDF_EXPORT_FAILED(1017, "Failed to export PDF" , HttpStatus.INTERNAL_SERVER_ERROR),
+    PDF_EXPORT_BUSY(1018, "PDF export is busy, please retry later" , HttpStatus.SERVICE_UNAVAILABLE),
+
+    // Export job
+    EXPORT_JOB_NOT_FOUND(1019, "Export job not found" , HttpStatus.NOT_FOUND),
+    EXPORT_JOB_NOT_READY(1020, "Export job is not finished yet" , HttpStatus.CONFLICT),
+
+    // Pagination
+    INVALID_CURSOR(1021, "Invalid pagination cursor" , HttpStatus.BAD_REQUEST),
+
+    // Section
+    SECTION_REORDER_INVALID(1022, "Each reordered section must have an id and an orderIndex" , HttpStatus.BAD_REQUEST),
+
+    // Token revocation
+    TOKEN_REVOCATION_UNAVAILABLE(1023, "Token revocation store is unavailable, please retry later" , HttpStatus.SERVICE_UNAVAILABLE),
     ;
 
 
@@ -34,10 +34,4 @@ public interface CVMapper {
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "lastAccessedAt", ignore = true)
     void updateCV(@MappingTarget CV cv, CVRequest request);
-
-    @Mapping(target = "id", ignore = true)
-    @Mapping(target = "createdAt", ignore = true)
-    @Mapping(target = "updatedAt", ignore = true)
-    @Mapping(target = "lastAccessedAt", ignore = true)
-    void duplicateCV(@MappingTarget CV cvNew, CV cvOld);
 }
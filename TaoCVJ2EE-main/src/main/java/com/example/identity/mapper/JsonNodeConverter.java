@@ -2,41 +2,59 @@ package com.example.identity.mapper;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
 import org.springframework.stereotype.Component;
 
+/**
+ * JsonNode <-> chuỗi JSON cho các cột kiểu JSON native (dùng cùng @JdbcTypeCode(SqlTypes.JSON)).
+ * Hibernate bind chuỗi thẳng vào cột JSON, DB tự validate và lưu dạng binary.
+ * Khi đọc trả về {@link LazyJsonNode}: chỉ parse khi thật sự được dùng.
+ */
 @Component
 @Converter(autoApply = false) // (autoApply=true nếu bạn muốn dùng cho MỌI cột JsonNode)
 public class JsonNodeConverter implements AttributeConverter<JsonNode, String> {
 
-    // Khởi tạo ObjectMapper, nên dùng DI nếu trong Spring @Component
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
+    // Reader/Writer immutable, thread-safe, không phải resolve lại serializer mỗi lần
+    private static final ObjectReader reader = objectMapper.readerFor(JsonNode.class);
+
+    private static final ObjectWriter writer = objectMapper.writerFor(JsonNode.class);
+
     @Override
     public String convertToDatabaseColumn(JsonNode attribute) {
         // Biến JsonNode -> Chuỗi JSON
-        if (attribute == null) {
-            return null;
-        }
-        try {
-            return objectMapper.writeValueAsString(attribute);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Không thể chuyển JsonNode thành chuỗi JSON", e);
-        }
+        return toJson(attribute);
     }
 
     @Override
     public JsonNode convertToEntityAttribute(String dbData) {
         // Biến Chuỗi JSON -> JsonNode
-        if (dbData == null || dbData.isEmpty()) {
+        return fromJson(dbData);
+    }
+
+    static String toJson(JsonNode node) {
+        if (node == null) {
             return null;
         }
         try {
-            // Đây là hàm parse chính
-            return objectMapper.readTree(dbData);
+            // Node chưa bị đụng tới -> ghi lại nguyên chuỗi đã đọc, không serialize lại
+            if (node instanceof LazyJsonNode lazy) {
+                return lazy.toJson(writer);
+            }
+            return writer.writeValueAsString(node);
         } catch (Exception e) {
-            throw new IllegalArgumentException("Không thể parse chuỗi JSON thành JsonNode", e);
+            throw new IllegalArgumentException("Không thể chuyển JsonNode thành chuỗi JSON", e);
+        }
+    }
+
+    static JsonNode fromJson(String json) {
+        if (json == null || json.isEmpty()) {
+            return null;
         }
+        return new LazyJsonNode(json, reader);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package com.example.identity.mapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.AbstractClassJavaType;
+import org.hibernate.type.descriptor.java.MutableMutabilityPlan;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Cách Hibernate so sánh và snapshot các cột JsonNode (đăng ký trong package entity).
+ * Mặc định Hibernate deep copy cả cây khi load và so sánh bằng equals của JsonNode,
+ * nên ObjectNode mới cùng nội dung (request update) vẫn bị coi là dirty và cột JSON bị ghi lại.
+ * Ở đây snapshot chỉ là chuỗi JSON và hai giá trị được coi là bằng nhau khi cùng nội dung.
+ */
+public class JsonNodeJavaType extends AbstractClassJavaType<JsonNode> {
+
+    public JsonNodeJavaType() {
+        super(JsonNode.class, new SnapshotMutabilityPlan());
+    }
+
+    /**
+     * So sánh theo nội dung: cùng chuỗi JSON là bằng nhau, không cần parse.
+     * Chuỗi khác nhau nhưng một bên là chuỗi gốc từ DB (DB có thể format lại khoảng trắng)
+     * thì mới so sánh cây.
+     */
+    @Override
+    public boolean areEqual(JsonNode one, JsonNode another) {
+        if (one == another) {
+            return true;
+        }
+        if (one == null || another == null) {
+            return false;
+        }
+        if (Objects.equals(JsonNodeConverter.toJson(one), JsonNodeConverter.toJson(another))) {
+            return true;
+        }
+        if (isUnparsed(one) || isUnparsed(another)) {
+            return LazyJsonNode.unwrap(one).equals(LazyJsonNode.unwrap(another));
+        }
+        return false;
+    }
+
+    @Override
+    public int extractHashCode(JsonNode value) {
+        return LazyJsonNode.unwrap(value).hashCode();
+    }
+
+    @Override
+    public String toString(JsonNode value) {
+        return JsonNodeConverter.toJson(value);
+    }
+
+    @Override
+    public JsonNode fromString(CharSequence string) {
+        return string == null ? null : JsonNodeConverter.fromJson(string.toString());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <X> X unwrap(JsonNode value, Class<X> type, WrapperOptions options) {
+        if (value == null) {
+            return null;
+        }
+        if (JsonNode.class.isAssignableFrom(type)) {
+            return (X) value;
+        }
+        if (String.class.isAssignableFrom(type)) {
+            return (X) JsonNodeConverter.toJson(value);
+        }
+        throw unknownUnwrap(type);
+    }
+
+    @Override
+    public <X> JsonNode wrap(X value, WrapperOptions options) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof JsonNode node) {
+            return node;
+        }
+        if (value instanceof String json) {
+            return JsonNodeConverter.fromJson(json);
+        }
+        throw unknownWrap(value.getClass());
+    }
+
+    private static boolean isUnparsed(JsonNode node) {
+        return node instanceof LazyJsonNode lazy && !lazy.isMaterialized();
+    }
+
+    /**
+     * Snapshot = LazyJsonNode bọc chuỗi JSON: node chưa parse thì dùng chung chuỗi gốc,
+     * node đã parse thì serialize 1 lần. Không copy cây JSON.
+     * (Cột có @Convert thì Hibernate snapshot qua JsonNodeConverter, kết quả giống hệt.)
+     */
+    private static class SnapshotMutabilityPlan extends MutableMutabilityPlan<JsonNode> {
+
+        @Override
+        protected JsonNode deepCopyNotNull(JsonNode value) {
+            return JsonNodeConverter.fromJson(JsonNodeConverter.toJson(value));
+        }
+
+        @Override
+        public Serializable disassemble(JsonNode value, SharedSessionContract session) {
+            return JsonNodeConverter.toJson(value);
+        }
+
+        @Override
+        public JsonNode assemble(Serializable cached, SharedSessionContract session) {
+            return JsonNodeConverter.fromJson((String) cached);
+        }
+    }
+}
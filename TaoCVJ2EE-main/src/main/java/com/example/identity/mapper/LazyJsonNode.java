@@ -0,0 +1,580 @@
+package com.example.identity.mapper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * JsonNode giữ nguyên chuỗi JSON đọc từ DB, chỉ parse thành cây ở lần truy cập đầu tiên.
+ * Entity được load nhưng không đọc cột JSON (list, reorder...) thì không tốn công parse,
+ * và khi flush converter ghi lại đúng chuỗi cũ thay vì serialize lại.
+ * Mọi method không final của JsonNode (kể cả with*, optional, stream) đều chuyển tiếp cho cây đã parse;
+ * cast sang ObjectNode/ArrayNode thì dùng {@link #materialize()}.
+ * equals chỉ bằng LazyJsonNode khác để giữ tính đối xứng, so với JsonNode thường thì {@link #unwrap} trước.
+ */
+public final class LazyJsonNode extends JsonNode {
+
+    private final String raw;
+
+    private final ObjectReader reader;
+
+    private volatile JsonNode node;
+
+    LazyJsonNode(String raw, ObjectReader reader) {
+        this.raw = raw;
+        this.reader = reader;
+    }
+
+    /**
+     * Cây JSON thật (parse nếu chưa parse). Sau khi gọi, node có thể bị sửa trực tiếp
+     * nên converter sẽ serialize lại khi flush.
+     */
+    public JsonNode materialize() {
+        JsonNode result = node;
+        if (result == null) {
+            synchronized (this) {
+                result = node;
+                if (result == null) {
+                    try {
+                        result = reader.readValue(raw);
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException("Không thể parse chuỗi JSON thành JsonNode", e);
+                    }
+                    node = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public boolean isMaterialized() {
+        return node != null;
+    }
+
+    /**
+     * Nếu là LazyJsonNode thì trả về cây thật, dùng trước khi cast sang ObjectNode/ArrayNode
+     */
+    public static JsonNode unwrap(JsonNode node) {
+        return node instanceof LazyJsonNode lazy ? lazy.materialize() : node;
+    }
+
+    /**
+     * Chuỗi JSON để ghi xuống DB: chưa bị đụng tới thì trả lại nguyên chuỗi gốc
+     */
+    String toJson(ObjectWriter writer) throws JsonProcessingException {
+        JsonNode current = node;
+        return current == null ? raw : writer.writeValueAsString(current);
+    }
+
+    // ===== Serialize: chưa parse thì ghi thẳng chuỗi gốc ra response =====
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider provider) throws IOException {
+        JsonNode current = node;
+        if (current == null) {
+            gen.writeRawValue(raw);
+        } else {
+            current.serialize(gen, provider);
+        }
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        materialize().serializeWithType(gen, provider, typeSer);
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider serializers) {
+        return materialize().isEmpty(serializers);
+    }
+
+    // ===== Chuyển tiếp cho cây đã parse =====
+
+    @Override
+    public <T extends JsonNode> T deepCopy() {
+        return materialize().deepCopy();
+    }
+
+    @Override
+    public JsonNodeType getNodeType() {
+        return materialize().getNodeType();
+    }
+
+    @Override
+    public JsonToken asToken() {
+        return materialize().asToken();
+    }
+
+    @Override
+    public JsonParser.NumberType numberType() {
+        return materialize().numberType();
+    }
+
+    @Override
+    public JsonParser traverse() {
+        return materialize().traverse();
+    }
+
+    @Override
+    public JsonParser traverse(ObjectCodec codec) {
+        return materialize().traverse(codec);
+    }
+
+    @Override
+    public int size() {
+        return materialize().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return materialize().isEmpty();
+    }
+
+    @Override
+    public boolean isMissingNode() {
+        return materialize().isMissingNode();
+    }
+
+    @Override
+    public boolean isArray() {
+        return materialize().isArray();
+    }
+
+    @Override
+    public boolean isObject() {
+        return materialize().isObject();
+    }
+
+    @Override
+    public JsonNode get(int index) {
+        return materialize().get(index);
+    }
+
+    @Override
+    public JsonNode get(String fieldName) {
+        return materialize().get(fieldName);
+    }
+
+    @Override
+    public Optional<JsonNode> optional(int index) {
+        return materialize().optional(index);
+    }
+
+    @Override
+    public Optional<JsonNode> optional(String propertyName) {
+        return materialize().optional(propertyName);
+    }
+
+    @Override
+    public JsonNode path(String fieldName) {
+        return materialize().path(fieldName);
+    }
+
+    @Override
+    public JsonNode path(int index) {
+        return materialize().path(index);
+    }
+
+    @Override
+    public Iterator<String> fieldNames() {
+        return materialize().fieldNames();
+    }
+
+    // at() gọi _at cho segment đầu rồi tự đi tiếp phần còn lại, nên chỉ resolve đúng 1 segment
+    @Override
+    protected JsonNode _at(JsonPointer ptr) {
+        JsonNode current = materialize();
+        if (current.isObject()) {
+            return current.get(ptr.getMatchingProperty());
+        }
+        if (current.isArray()) {
+            return current.get(ptr.getMatchingIndex());
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isIntegralNumber() {
+        return materialize().isIntegralNumber();
+    }
+
+    @Override
+    public boolean isFloatingPointNumber() {
+        return materialize().isFloatingPointNumber();
+    }
+
+    @Override
+    public boolean isShort() {
+        return materialize().isShort();
+    }
+
+    @Override
+    public boolean isInt() {
+        return materialize().isInt();
+    }
+
+    @Override
+    public boolean isLong() {
+        return materialize().isLong();
+    }
+
+    @Override
+    public boolean isFloat() {
+        return materialize().isFloat();
+    }
+
+    @Override
+    public boolean isDouble() {
+        return materialize().isDouble();
+    }
+
+    @Override
+    public boolean isBigDecimal() {
+        return materialize().isBigDecimal();
+    }
+
+    @Override
+    public boolean isBigInteger() {
+        return materialize().isBigInteger();
+    }
+
+    @Override
+    public boolean canConvertToInt() {
+        return materialize().canConvertToInt();
+    }
+
+    @Override
+    public boolean canConvertToLong() {
+        return materialize().canConvertToLong();
+    }
+
+    @Override
+    public boolean canConvertToExactIntegral() {
+        return materialize().canConvertToExactIntegral();
+    }
+
+    @Override
+    public String textValue() {
+        return materialize().textValue();
+    }
+
+    @Override
+    public byte[] binaryValue() throws IOException {
+        return materialize().binaryValue();
+    }
+
+    @Override
+    public boolean booleanValue() {
+        return materialize().booleanValue();
+    }
+
+    @Override
+    public Number numberValue() {
+        return materialize().numberValue();
+    }
+
+    @Override
+    public short shortValue() {
+        return materialize().shortValue();
+    }
+
+    @Override
+    public int intValue() {
+        return materialize().intValue();
+    }
+
+    @Override
+    public long longValue() {
+        return materialize().longValue();
+    }
+
+    @Override
+    public float floatValue() {
+        return materialize().floatValue();
+    }
+
+    @Override
+    public double doubleValue() {
+        return materialize().doubleValue();
+    }
+
+    @Override
+    public BigDecimal decimalValue() {
+        return materialize().decimalValue();
+    }
+
+    @Override
+    public BigInteger bigIntegerValue() {
+        return materialize().bigIntegerValue();
+    }
+
+    @Override
+    public String asText() {
+        return materialize().asText();
+    }
+
+    @Override
+    public String asText(String defaultValue) {
+        return materialize().asText(defaultValue);
+    }
+
+    @Override
+    public int asInt() {
+        return materialize().asInt();
+    }
+
+    @Override
+    public int asInt(int defaultValue) {
+        return materialize().asInt(defaultValue);
+    }
+
+    @Override
+    public long asLong() {
+        return materialize().asLong();
+    }
+
+    @Override
+    public long asLong(long defaultValue) {
+        return materialize().asLong(defaultValue);
+    }
+
+    @Override
+    public double asDouble() {
+        return materialize().asDouble();
+    }
+
+    @Override
+    public double asDouble(double defaultValue) {
+        return materialize().asDouble(defaultValue);
+    }
+
+    @Override
+    public boolean asBoolean() {
+        return materialize().asBoolean();
+    }
+
+    @Override
+    public boolean asBoolean(boolean defaultValue) {
+        return materialize().asBoolean(defaultValue);
+    }
+
+    @Override
+    public Optional<JsonNode> asOptional() {
+        return materialize().asOptional();
+    }
+
+    @Override
+    public <T extends JsonNode> T require() {
+        return materialize().require();
+    }
+
+    @Override
+    public <T extends JsonNode> T requireNonNull() {
+        return materialize().requireNonNull();
+    }
+
+    @Override
+    public JsonNode requiredAt(String pathExpr) {
+        return materialize().requiredAt(pathExpr);
+    }
+
+    @Override
+    public JsonNode required(String propertyName) {
+        return materialize().required(propertyName);
+    }
+
+    @Override
+    public JsonNode required(int index) {
+        return materialize().required(index);
+    }
+
+    @Override
+    public boolean has(String fieldName) {
+        return materialize().has(fieldName);
+    }
+
+    @Override
+    public boolean has(int index) {
+        return materialize().has(index);
+    }
+
+    @Override
+    public boolean hasNonNull(String fieldName) {
+        return materialize().hasNonNull(fieldName);
+    }
+
+    @Override
+    public boolean hasNonNull(int index) {
+        return materialize().hasNonNull(index);
+    }
+
+    @Override
+    public Iterator<JsonNode> elements() {
+        return materialize().elements();
+    }
+
+    @Override
+    public Iterator<JsonNode> values() {
+        return materialize().values();
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, JsonNode>> fields() {
+        return materialize().fields();
+    }
+
+    @Override
+    public Set<Map.Entry<String, JsonNode>> properties() {
+        return materialize().properties();
+    }
+
+    @Override
+    public Stream<JsonNode> valueStream() {
+        return materialize().valueStream();
+    }
+
+    @Override
+    public Stream<Map.Entry<String, JsonNode>> propertyStream() {
+        return materialize().propertyStream();
+    }
+
+    @Override
+    public void forEachEntry(BiConsumer<? super String, ? super JsonNode> action) {
+        materialize().forEachEntry(action);
+    }
+
+    @Override
+    public JsonNode findValue(String fieldName) {
+        return materialize().findValue(fieldName);
+    }
+
+    @Override
+    public JsonNode findPath(String fieldName) {
+        return materialize().findPath(fieldName);
+    }
+
+    @Override
+    public JsonNode findParent(String fieldName) {
+        return materialize().findParent(fieldName);
+    }
+
+    @Override
+    public List<JsonNode> findValues(String fieldName, List<JsonNode> foundSoFar) {
+        return materialize().findValues(fieldName, foundSoFar);
+    }
+
+    @Override
+    public List<String> findValuesAsText(String fieldName, List<String> foundSoFar) {
+        return materialize().findValuesAsText(fieldName, foundSoFar);
+    }
+
+    @Override
+    public List<JsonNode> findParents(String fieldName, List<JsonNode> foundSoFar) {
+        return materialize().findParents(fieldName, foundSoFar);
+    }
+
+    // ===== with*: JsonNode mặc định ném UnsupportedOperationException, phải chuyển cho ObjectNode/ArrayNode thật =====
+
+    @Override
+    public ObjectNode withObject(String expr) {
+        return materialize().withObject(expr);
+    }
+
+    @Override
+    public ObjectNode withObject(JsonPointer ptr, OverwriteMode overwriteMode, boolean preferIndex) {
+        return materialize().withObject(ptr, overwriteMode, preferIndex);
+    }
+
+    @Override
+    public ObjectNode withObjectProperty(String propName) {
+        return materialize().withObjectProperty(propName);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public <T extends JsonNode> T with(String exprOrProperty) {
+        return materialize().with(exprOrProperty);
+    }
+
+    @Override
+    public <T extends JsonNode> T withArray(String exprOrProperty) {
+        return materialize().withArray(exprOrProperty);
+    }
+
+    @Override
+    public ArrayNode withArray(String expr, OverwriteMode overwriteMode, boolean preferIndex) {
+        return materialize().withArray(expr, overwriteMode, preferIndex);
+    }
+
+    @Override
+    public ArrayNode withArray(JsonPointer ptr, OverwriteMode overwriteMode, boolean preferIndex) {
+        return materialize().withArray(ptr, overwriteMode, preferIndex);
+    }
+
+    @Override
+    public ArrayNode withArrayProperty(String propName) {
+        return materialize().withArrayProperty(propName);
+    }
+
+    @Override
+    public boolean equals(Comparator<JsonNode> comparator, JsonNode other) {
+        return materialize().equals(comparator, unwrap(other));
+    }
+
+    @Override
+    public String toPrettyString() {
+        return materialize().toPrettyString();
+    }
+
+    @Override
+    public String toString() {
+        return materialize().toString();
+    }
+
+    /**
+     * Chỉ so với LazyJsonNode khác: cả 2 chưa parse thì so chuỗi gốc, ngược lại so sánh cây JSON.
+     * ObjectNode.equals(LazyJsonNode) luôn false nên không thể bằng JsonNode thường mà vẫn đối xứng;
+     * so nội dung với JsonNode thường thì dùng unwrap (như JsonNodeJavaType.areEqual)
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LazyJsonNode other)) {
+            return false;
+        }
+        if (node == null && other.node == null && raw.equals(other.raw)) {
+            return true;
+        }
+        return materialize().equals(other.materialize());
+    }
+
+    @Override
+    public int hashCode() {
+        return materialize().hashCode();
+    }
+}
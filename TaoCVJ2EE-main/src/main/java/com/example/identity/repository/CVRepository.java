@@ -1,11 +1,52 @@
 package com.example.identity.repository;
 
 import com.example.identity.entity.CV;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 @Repository
-public interface CVRepository extends JpaRepository<CV, Long> {
+public interface CVRepository extends JpaRepository<CV, Long>, CVRepositoryCustom {
     List<CV> findAllByUserUsername(String username);
+
+    // Danh sách CV của user theo keyset (updatedAt, id), chỉ lấy các cột hiển thị (không kéo LOB cvData, sections)
+    Window<CVSummaryView> findByUserUsernameOrderByUpdatedAtDescIdDesc(String username, ScrollPosition position, Limit limit);
+
+    // CV cùng sections trong 1 query (trả về CV vừa nhân đôi)
+    @EntityGraph(attributePaths = "sections")
+    Optional<CV> findWithSectionsById(Long id);
+
+    // Lấy 1 CV của đúng chủ sở hữu, sections được load cùng query
+    @EntityGraph(attributePaths = "sections")
+    Optional<CV> findByIdAndUserUsername(Long id, String username);
+
+    // Cùng điều kiện chủ sở hữu nhưng không load CV/sections (luồng ghi chỉ cần kiểm tra quyền)
+    boolean existsByIdAndUserUsername(Long id, String username);
+
+    // Load CV cùng template, sections trong 1 query cho luồng render/export.
+    // User không fetch ở đây vì kéo theo roles (EAGER) thành query thứ 2, render chỉ cần user khi cvData thiếu
+    @Query("SELECT DISTINCT c FROM CV c LEFT JOIN FETCH c.template LEFT JOIN FETCH c.sections WHERE c.id = :id")
+    Optional<CV> findForRenderById(@Param("id") Long id);
+
+    // Load nhiều CV cùng template, user, sections trong 1 query để render song song
+    @Query("SELECT DISTINCT c FROM CV c LEFT JOIN FETCH c.template LEFT JOIN FETCH c.user "
+            + "LEFT JOIN FETCH c.sections WHERE c.id IN :ids")
+    List<CV> findAllForRenderByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Closed projection: Hibernate chỉ select đúng các cột này
+    interface CVSummaryView {
+        Long getId();
+        String getName();
+        String getThumbnailUrl();
+        LocalDateTime getUpdatedAt();
+    }
 }
@@ -0,0 +1,11 @@
+package com.example.identity.repository;
+
+public interface CVRepositoryCustom {
+
+    /**
+     * Nhân đôi CV và sections bằng INSERT ... SELECT ngay trong DB (1 transaction),
+     * không load các cột JSON lên JVM. Trả về id CV mới, null nếu CV gốc không tồn tại
+     * hoặc không thuộc username.
+     */
+    Long duplicate(Long cvId, String username);
+}
@@ -0,0 +1,65 @@
+package com.example.identity.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+public class CVRepositoryCustomImpl implements CVRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Lấy id trong transaction riêng: trên MySQL sequence là 1 dòng trong bảng cv_seq,
+    // không giữ lock dòng đó tới hết transaction nhân đôi (giống cách Hibernate tự lấy id)
+    private final TransactionTemplate sequenceTransaction;
+
+    public CVRepositoryCustomImpl(PlatformTransactionManager transactionManager) {
+        this.sequenceTransaction = new TransactionTemplate(transactionManager);
+        this.sequenceTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    @Transactional
+    public Long duplicate(Long cvId, String username) {
+        // Step 1: lấy trước id cho CV mới bằng 1 câu SQL trên cv_seq (không qua SPI generator của Hibernate)
+        Long newId = sequenceTransaction.execute(status -> entityManager.unwrap(Session.class)
+                .doReturningWork(IdSequence.CV::next));
+        LocalDateTime now = LocalDateTime.now();
+
+        // Step 2: copy dòng cv nếu CV gốc thuộc username.
+        // Share token/QR là của CV gốc nên không copy, CV mới ở chế độ riêng tư
+        int inserted = entityManager.createQuery("""
+                        INSERT INTO CV (id, user, template, thumbnailUrl, name, tags, cvData, sectionOrder, customization,
+                                        isPublic, createdAt, updatedAt)
+                        SELECT :newId, c.user, c.template, c.thumbnailUrl, c.name, c.tags, c.cvData, c.sectionOrder, c.customization,
+                               false, :now, :now
+                        FROM CV c WHERE c.id = :cvId AND c.user.username = :username
+                        """)
+                .setParameter("newId", newId)
+                .setParameter("now", now)
+                .setParameter("cvId", cvId)
+                .setParameter("username", username)
+                .executeUpdate();
+        if (inserted == 0) {
+            return null;
+        }
+
+        // Step 3: copy các dòng cv_section sang CV mới, id section lấy từ sequence
+        entityManager.createQuery("""
+                        INSERT INTO CVSection (cv, sectionType, sectionData, orderIndex, isVisible)
+                        SELECT target, s.sectionType, s.sectionData, s.orderIndex, s.isVisible
+                        FROM CVSection s, CV target
+                        WHERE s.cv.id = :cvId AND target.id = :newId
+                        """)
+                .setParameter("cvId", cvId)
+                .setParameter("newId", newId)
+                .executeUpdate();
+        return newId;
+    }
+}
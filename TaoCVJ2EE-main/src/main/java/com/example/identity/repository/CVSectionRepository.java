@@ -2,11 +2,23 @@ package com.example.identity.repository;
 
 import com.example.identity.entity.CVSection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface CVSectionRepository extends JpaRepository<CVSection, Long> {
+public interface CVSectionRepository extends JpaRepository<CVSection, Long>, CVSectionRepositoryCustom {
     List<CVSection> findAllByCvId(Long cvId);
+
+    // Section chỉ trả về khi CV chứa nó thuộc về username
+    Optional<CVSection> findByIdAndCvUserUsername(Long id, String username);
+
+    // Sắp xếp ở DB, dùng index (cv_id, order_index)
+    List<CVSection> findAllByCvIdOrderByOrderIndexAsc(Long cvId);
+
+    // CV chứa section, không load section_data
+    @Query("select s.cv.id from CVSection s where s.id = :id")
+    Optional<Long> findCvIdById(Long id);
 }
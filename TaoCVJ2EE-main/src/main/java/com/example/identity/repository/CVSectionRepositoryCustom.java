@@ -0,0 +1,12 @@
+package com.example.identity.repository;
+
+import java.util.Map;
+
+public interface CVSectionRepositoryCustom {
+
+    /**
+     * Cập nhật order_index của nhiều section trong 1 câu UPDATE ... CASE,
+     * không load entity (không đọc cột section_data). Trả về số dòng được cập nhật.
+     */
+    int updateOrderIndexes(Long cvId, Map<Long, Integer> orderIndexById);
+}
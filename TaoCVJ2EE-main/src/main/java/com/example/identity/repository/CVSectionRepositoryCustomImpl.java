@@ -0,0 +1,60 @@
+package com.example.identity.repository;
+
+import com.example.identity.entity.CVSection;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class CVSectionRepositoryCustomImpl implements CVSectionRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int updateOrderIndexes(Long cvId, Map<Long, Integer> orderIndexById) {
+        if (orderIndexById.isEmpty()) {
+            return 0;
+        }
+
+        // Step 1: UPDATE cv_section SET order_index = CASE id WHEN ? THEN ? ... END WHERE cv_id = ? AND id IN (...)
+        StringBuilder jpql = new StringBuilder("UPDATE CVSection s SET s.orderIndex = CASE s.id");
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(orderIndexById.entrySet());
+        for (int i = 0; i < entries.size(); i++) {
+            jpql.append(" WHEN :id").append(i).append(" THEN :order").append(i);
+        }
+        jpql.append(" ELSE s.orderIndex END WHERE s.cv.id = :cvId AND s.id IN :ids");
+
+        // Step 2: bind tham số
+        Query query = entityManager.createQuery(jpql.toString());
+        for (int i = 0; i < entries.size(); i++) {
+            query.setParameter("id" + i, entries.get(i).getKey());
+            query.setParameter("order" + i, entries.get(i).getValue());
+        }
+        query.setParameter("cvId", cvId);
+        query.setParameter("ids", orderIndexById.keySet());
+
+        // Step 3: đẩy thay đổi đang chờ trước, sau đó chỉ làm mới các section bị đổi đang nằm trong persistence context
+        entityManager.flush();
+        int updated = query.executeUpdate();
+        refreshLoadedSections(orderIndexById.keySet());
+        return updated;
+    }
+
+    // Entity khác (CV, user...) vẫn managed; section chưa load (hoặc chỉ là proxy) thì lần đọc sau tự lấy giá trị mới
+    private void refreshLoadedSections(Iterable<Long> ids) {
+        PersistenceUnitUtil persistenceUnitUtil = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+        for (Long id : ids) {
+            CVSection section = entityManager.getReference(CVSection.class, id);
+            if (persistenceUnitUtil.isLoaded(section)) {
+                entityManager.refresh(section);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.identity.repository;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Sequence sinh id (pooled) của CV và CVSection, truy cập bằng JDBC thường.
+ * DB có sequence thật (H2, MariaDB) thì dùng NEXT VALUE FOR; MySQL không có sequence nên Hibernate
+ * giả lập bằng bảng 1 dòng (cột next_val), khi đó đọc/ghi thẳng bảng đó.
+ * Mỗi giá trị v lấy từ sequence ứng với block id [v - 49, v]; ai lấy được v thì giữ cả block đó.
+ * Tên bảng/cột luôn được quote vì Hibernate tạo schema với globally_quoted_identifiers.
+ */
+public enum IdSequence {
+    CV("cv_seq", "cv"),
+    CV_SECTION("cv_section_seq", "cv_section");
+
+    // Phải khớp allocationSize của @SequenceGenerator trên entity
+    public static final int ALLOCATION_SIZE = 50;
+
+    private final String sequenceName;
+
+    private final String tableName;
+
+    IdSequence(String sequenceName, String tableName) {
+        this.sequenceName = sequenceName;
+        this.tableName = tableName;
+    }
+
+    public String getSequenceName() {
+        return sequenceName;
+    }
+
+    /**
+     * Lấy 1 giá trị mới của sequence, dùng trực tiếp làm id (không trùng block Hibernate đang dùng)
+     */
+    public long next(Connection connection) throws SQLException {
+        String sequence = quote(connection, sequenceName);
+        try (Statement statement = connection.createStatement()) {
+            if (isTable(connection)) {
+                // Giống Hibernate: đọc next_val làm giá trị, đẩy bảng lên 1 block; LAST_INSERT_ID giữ giá trị cũ theo connection
+                String nextVal = quote(connection, "next_val");
+                statement.executeUpdate("UPDATE " + sequence
+                        + " SET " + nextVal + " = LAST_INSERT_ID(" + nextVal + ") + " + ALLOCATION_SIZE);
+                return single(statement, "SELECT LAST_INSERT_ID()");
+            }
+            return single(statement, "SELECT NEXT VALUE FOR " + sequence);
+        }
+    }
+
+    /**
+     * Đẩy sequence lên trên id lớn nhất đang có trong bảng (dữ liệu cũ insert bằng AUTO_INCREMENT),
+     * trả về giá trị tối thiểu đã đảm bảo. Chạy lại nhiều lần không sao.
+     */
+    public long seed(Connection connection) throws SQLException {
+        String sequence = quote(connection, sequenceName);
+        long floor;
+        try (Statement statement = connection.createStatement()) {
+            // Block đầu tiên [floor - 49, floor] phải nằm hoàn toàn trên MAX(id)
+            floor = single(statement, "SELECT COALESCE(MAX(" + quote(connection, "id") + "), 0) FROM "
+                    + quote(connection, tableName)) + ALLOCATION_SIZE + 1;
+        }
+
+        if (isTable(connection)) {
+            String nextVal = quote(connection, "next_val");
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE " + sequence + " SET " + nextVal + " = ? WHERE " + nextVal + " < ?")) {
+                update.setLong(1, floor);
+                update.setLong(2, floor);
+                update.executeUpdate();
+            }
+            return floor;
+        }
+
+        if (next(connection) < floor) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + floor);
+            }
+        }
+        return floor;
+    }
+
+    private boolean isTable(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String name : new String[]{sequenceName, sequenceName.toUpperCase()}) {
+            try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, name, new String[]{"TABLE"})) {
+                if (tables.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String quote(Connection connection, String identifier) throws SQLException {
+        String quote = connection.getMetaData().getIdentifierQuoteString().trim();
+        return quote + identifier + quote;
+    }
+
+    private static long single(Statement statement, String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
@@ -1,20 +1,23 @@
 package com.example.identity.repository;
 
 import com.example.identity.entity.InvalidatedToken;
-import io.lettuce.core.dynamic.annotation.Param;
-import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
+import java.util.List;
 
 @Repository
 public interface InvalidatedTokenRepository extends JpaRepository<InvalidatedToken, String> {
     boolean existsById(String token);
-    @Modifying
-    @Transactional
-    @Query("DELETE FROM InvalidatedToken t WHERE t.expirationTime <= :threshold")
-    void deleteExpiredTokens(@Param("threshold") Date threshold);
+
+    // Các token thu hồi còn hiệu lực, dùng để nạp blacklist trong bộ nhớ
+    List<InvalidatedToken> findAllByExpirationTimeAfter(Date threshold);
+
+    // Một lô id hết hạn (range scan trên idx_invalidated_token_expiration), xóa bằng deleteAllByIdInBatch
+    @Query("SELECT t.id FROM InvalidatedToken t WHERE t.expirationTime <= :threshold")
+    List<String> findExpiredIds(@Param("threshold") Date threshold, Limit limit);
 }
@@ -1,6 +1,9 @@
 package com.example.identity.repository;
 
 import com.example.identity.entity.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.jpa.repository.Query;
@@ -15,6 +18,9 @@ public interface UserRepository extends JpaRepository<User, String> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
 
+    // Danh sách user theo keyset trên id
+    Window<User> findByOrderByIdAsc(ScrollPosition position, Limit limit);
+
     @Query("SELECT COUNT(u) FROM User u WHERE FUNCTION('YEAR', u.createdAt) = :year AND FUNCTION('MONTH', u.createdAt) = :month")
     long countByCreatedAtMonth(@Param("year") int year, @Param("month") int month);
 
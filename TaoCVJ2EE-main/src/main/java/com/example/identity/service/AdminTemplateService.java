@@ -13,6 +13,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,6 +35,7 @@ public class AdminTemplateService {
     final TemplateMapper templateMapper;
     final TemplateParserService templateParserService;
     final ObjectMapper objectMapper;
+    final TemplatePreviewService templatePreviewService;
 
     @Value("${template.storage.path:src/main/resources/templates/cv}")
     String templateStoragePath;
@@ -78,12 +81,21 @@ public class AdminTemplateService {
         Template saved = templateRepository.save(template);
         log.info("Template created successfully with ID: {}", saved.getId());
 
+        // Step 5: Pre-render preview cho gallery
+        generatePreviewQuietly(saved);
+
         return templateMapper.toDtoRes(saved);
     }
 
     /**
-     * Update template HTML
+     * Update template HTML.
+     * Xóa cả cache entity: preview/render đọc version + compiledFilePath qua getTemplateById
      */
+    @Caching(evict = {
+            @CacheEvict(value = "templates", key = "#id"),
+            @CacheEvict(value = "templates-entity", key = "#id"),
+            @CacheEvict(value = "templates-list", allEntries = true)
+    })
     @Transactional
     public TemplateResponse updateTemplateHtml(Long id, AdminTemplateUploadRequest request) {
         log.info("Updating template HTML: {}", id);
@@ -118,6 +130,8 @@ public class AdminTemplateService {
         Template updated = templateRepository.save(template);
         log.info("Template updated successfully: {}", id);
 
+        generatePreviewQuietly(updated);
+
         return templateMapper.toDtoRes(updated);
     }
 
@@ -132,6 +146,11 @@ public class AdminTemplateService {
     /**
      * Delete template
      */
+    @Caching(evict = {
+            @CacheEvict(value = "templates", key = "#id"),
+            @CacheEvict(value = "templates-entity", key = "#id"),
+            @CacheEvict(value = "templates-list", allEntries = true)
+    })
     @Transactional
     public void deleteTemplate(Long id) {
         Template template = templateRepository.findById(id)
@@ -142,6 +161,7 @@ public class AdminTemplateService {
             deleteTemplateFile(template.getCompiledFilePath());
         }
 
+        templatePreviewService.deletePreviews(template);
         templateRepository.delete(template);
         log.info("Template deleted: {}", id);
     }
@@ -149,6 +169,11 @@ public class AdminTemplateService {
     /**
      * Toggle active status
      */
+    @Caching(evict = {
+            @CacheEvict(value = "templates", key = "#id"),
+            @CacheEvict(value = "templates-entity", key = "#id"),
+            @CacheEvict(value = "templates-list", allEntries = true)
+    })
     @Transactional
     public TemplateResponse toggleActiveStatus(Long id) {
         Template template = templateRepository.findById(id)
@@ -178,6 +203,17 @@ public class AdminTemplateService {
         return String.format("template_%s_%s.html", sanitized, timestamp);
     }
 
+    /**
+     * Render preview ngay khi lưu template; nếu lỗi thì để gallery render lại lần đầu được xem
+     */
+    private void generatePreviewQuietly(Template template) {
+        try {
+            templatePreviewService.generatePreview(template);
+        } catch (Exception e) {
+            log.warn("Failed to pre-render preview for template {}", template.getId(), e);
+        }
+    }
+
     /**
      * Save Thymeleaf template to disk
      */
@@ -6,17 +6,16 @@ import com.example.identity.dto.request.LogoutRequest;
 import com.example.identity.dto.request.RefreshTokenRequest;
 import com.example.identity.dto.response.AuthenticationResponse;
 import com.example.identity.dto.response.IntrospectResponse;
-import com.example.identity.entity.InvalidatedToken;
 import com.example.identity.entity.User;
 import com.example.identity.exception.AppException;
 import com.example.identity.exception.ErrorCode;
-import com.example.identity.repository.InvalidatedTokenRepository;
 import com.example.identity.repository.UserRepository;
 import com.nimbusds.jose.*;
 import com.nimbusds.jose.crypto.MACSigner;
 import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
+import jakarta.annotation.PostConstruct;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
@@ -56,7 +55,22 @@ public class AuthenticationService {
     protected long REFRESHABLE_DURATION;
 
 
-    InvalidatedTokenRepository tokenRepository;
+    TokenRevocationService tokenRevocationService;
+
+    VerifiedTokenCache verifiedTokenCache;
+
+    // MACSigner/MACVerifier thread-safe sau khi tạo, dựng 1 lần theo SIGNER_KEY
+    @NonFinal
+    JWSSigner signer;
+
+    @NonFinal
+    JWSVerifier verifier;
+
+    @PostConstruct
+    void initKeys() throws JOSEException {
+        signer = new MACSigner(SIGNER_KEY.getBytes());
+        verifier = new MACVerifier(SIGNER_KEY.getBytes());
+    }
 
     public IntrospectResponse introspect(IntrospectRequest request)
             throws JOSEException, ParseException {
@@ -99,13 +113,12 @@ public class AuthenticationService {
             String jti = signToken.getJWTClaimsSet().getJWTID();
             Date expirationDate = signToken.getJWTClaimsSet().getExpirationTime();
 
-            InvalidatedToken invalidatedToken = InvalidatedToken.builder()
-                    .id(jti)
-                    .expirationTime(expirationDate)
-                    .build();
-
-            tokenRepository.save(invalidatedToken);
+            tokenRevocationService.revoke(jti, expirationDate);
+            verifiedTokenCache.invalidate(request.getToken());
         } catch (AppException e) {
+            // Store thu hồi lỗi thì báo client thử lại, không coi như đã logout
+            if (e.getErrorCode() == ErrorCode.TOKEN_REVOCATION_UNAVAILABLE)
+                throw e;
             log.info("Token already expired");
         }
 
@@ -113,8 +126,6 @@ public class AuthenticationService {
     }
 
     private SignedJWT verifyToken(String token , boolean isRefresh) throws JOSEException, ParseException {
-        JWSVerifier verifier = new MACVerifier(SIGNER_KEY.getBytes());
-
         SignedJWT signedJWT = SignedJWT.parse(token);
 
         Date expiryTime = (isRefresh)
@@ -127,8 +138,8 @@ public class AuthenticationService {
         if (!(verified && expiryTime.after(new Date())))
             throw new AppException(ErrorCode.UNAUTHENTICATED);
 
-        if (tokenRepository
-                .existsById(signedJWT.getJWTClaimsSet().getJWTID()))
+        // Blacklist trong bộ nhớ, không query DB
+        if (tokenRevocationService.isRevoked(signedJWT.getJWTClaimsSet().getJWTID()))
             throw new AppException(ErrorCode.UNAUTHENTICATED);
 
         return signedJWT;
@@ -141,12 +152,8 @@ public class AuthenticationService {
         var jti = signedJWT.getJWTClaimsSet().getJWTID();
 
         var expirationDate = signedJWT.getJWTClaimsSet().getExpirationTime();
-        InvalidatedToken invalidatedToken = InvalidatedToken.builder()
-                .id(jti)
-                .expirationTime(expirationDate)
-                .build();
-
-        tokenRepository.save(invalidatedToken);
+        tokenRevocationService.revoke(jti, expirationDate);
+        verifiedTokenCache.invalidate(request.getToken());
 
         var username = signedJWT.getJWTClaimsSet().getSubject();
         var user = userRepository.findByUsername(username)
@@ -175,7 +182,7 @@ public class AuthenticationService {
 
         JWSObject jwsObject = new JWSObject(header , payload);
         try {
-            jwsObject.sign(new MACSigner(SIGNER_KEY.getBytes()));
+            jwsObject.sign(signer);
             return jwsObject.serialize();
         } catch (JOSEException e) {
             log.error("Cannot sign JWT", e);
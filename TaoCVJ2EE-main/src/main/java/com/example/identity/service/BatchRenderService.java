@@ -0,0 +1,147 @@
+package com.example.identity.service;
+
+import com.example.identity.dto.response.RenderResultResponse;
+import com.example.identity.entity.CV;
+import com.example.identity.exception.AppException;
+import com.example.identity.exception.ErrorCode;
+import com.example.identity.repository.CVRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Render nhiều CV song song trên renderExecutor và ghi kết quả dạng NDJSON
+ * (mỗi dòng một CV) theo thứ tự render xong, không theo thứ tự id gửi lên.
+ * Số render đang chạy của một batch bị giới hạn bởi max-in-flight, nên một template chậm
+ * chỉ giữ một slot thay vì chặn cả batch, và response không bị dồn hết vào bộ nhớ.
+ */
+@Service
+@Slf4j
+public class BatchRenderService {
+
+    private final CVRepository cvRepository;
+
+    private final RenderService renderService;
+
+    private final ObjectMapper objectMapper;
+
+    private final ThreadPoolTaskExecutor renderExecutor;
+
+    private final int maxBatchSize;
+
+    private final int maxInFlight;
+
+    private final long timeoutMs;
+
+    public BatchRenderService(CVRepository cvRepository,
+                              RenderService renderService,
+                              ObjectMapper objectMapper,
+                              @Qualifier("renderExecutor") ThreadPoolTaskExecutor renderExecutor,
+                              @Value("${render.batch.max-size:50}") int maxBatchSize,
+                              @Value("${render.batch.max-in-flight:4}") int maxInFlight,
+                              @Value("${render.batch.timeout-ms:30000}") long timeoutMs) {
+        this.cvRepository = cvRepository;
+        this.renderService = renderService;
+        this.objectMapper = objectMapper;
+        this.renderExecutor = renderExecutor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxInFlight = maxInFlight;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public void renderBatch(List<Long> ids, Writer writer) throws IOException {
+        // Step 1: Kiểm tra và loại id trùng
+        if (ids == null || ids.isEmpty()) {
+            throw new AppException(ErrorCode.BATCH_RENDER_INVALID);
+        }
+        List<Long> uniqueIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (uniqueIds.isEmpty() || uniqueIds.size() > maxBatchSize) {
+            throw new AppException(ErrorCode.BATCH_RENDER_INVALID);
+        }
+
+        // Step 2: Load tất cả CV (kèm template, user, sections) trong 1 query
+        Map<Long, CV> cvs = cvRepository.findAllForRenderByIdIn(uniqueIds).stream()
+                .collect(Collectors.toMap(CV::getId, Function.identity()));
+
+        Deque<CV> pending = new ArrayDeque<>();
+        for (Long id : uniqueIds) {
+            CV cv = cvs.get(id);
+            if (cv == null) {
+                writeLine(writer, RenderResultResponse.builder().id(id).error(ErrorCode.CV_NOT_FOUND.getMessage()).build());
+            } else if (cv.getTemplate() == null) {
+                writeLine(writer, RenderResultResponse.builder().id(id).error(ErrorCode.TEMPLATE_NOT_FOUND.getMessage()).build());
+            } else {
+                pending.add(cv);
+            }
+        }
+
+        // Step 3: Render với cửa sổ trượt, ghi từng kết quả ngay khi xong
+        CompletionService<RenderResultResponse> completionService =
+                new ExecutorCompletionService<>(renderExecutor.getThreadPoolExecutor());
+        Map<Future<RenderResultResponse>, Long> inFlight = new HashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        try {
+            while (!pending.isEmpty() || !inFlight.isEmpty()) {
+                while (!pending.isEmpty() && inFlight.size() < maxInFlight) {
+                    CV cv = pending.poll();
+                    inFlight.put(completionService.submit(() -> render(cv)), cv.getId());
+                }
+
+                Future<RenderResultResponse> done =
+                        completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    break;
+                }
+                Long id = inFlight.remove(done);
+                writeLine(writer, resultOf(id, done));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Step 4: Hủy các render quá hạn, báo lỗi cho những CV chưa xong
+            for (Map.Entry<Future<RenderResultResponse>, Long> entry : inFlight.entrySet()) {
+                entry.getKey().cancel(true);
+                pending.addFirst(CV.builder().id(entry.getValue()).build());
+            }
+            if (!pending.isEmpty()) {
+                log.warn("Batch render timed out, {} CV(s) not rendered", pending.size());
+            }
+            for (CV cv : pending) {
+                writeLine(writer, RenderResultResponse.builder().id(cv.getId()).error("Render timed out").build());
+            }
+        }
+    }
+
+    private RenderResultResponse render(CV cv) {
+        return RenderResultResponse.builder().id(cv.getId()).html(renderService.renderCV(cv)).build();
+    }
+
+    private RenderResultResponse resultOf(Long id, Future<RenderResultResponse> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            log.error("Batch render failed for CV {}", id, e.getCause());
+            return RenderResultResponse.builder().id(id).error(ErrorCode.TEMPLATE_RENDER_FAILED.getMessage()).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return RenderResultResponse.builder().id(id).error(ErrorCode.TEMPLATE_RENDER_FAILED.getMessage()).build();
+        }
+    }
+
+    private void writeLine(Writer writer, RenderResultResponse result) throws IOException {
+        writer.write(objectMapper.writeValueAsString(result));
+        writer.write('\n');
+        writer.flush();
+    }
+}
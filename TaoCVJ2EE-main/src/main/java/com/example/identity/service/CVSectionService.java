@@ -1,20 +1,24 @@
 package com.example.identity.service;
 
 import com.example.identity.dto.request.CVSectionRequestReorder;
-import com.example.identity.entity.CV;
 import com.example.identity.entity.CVSection;
 import com.example.identity.exception.AppException;
 import com.example.identity.exception.ErrorCode;
 import com.example.identity.mapper.CVSectionMapper;
 import com.example.identity.repository.CVRepository;
 import com.example.identity.repository.CVSectionRepository;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
-import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,46 +27,78 @@ public class CVSectionService {
     CVSectionRepository cvSectionRepository;
     CVSectionMapper cvSectionMapper;
     CVRepository cvRepository;
+    RenderService renderService;
 
     public CVSection getSectionById(Long sectionId) {
         return cvSectionRepository.findById(sectionId).orElse(null);
     }
 
     public List<CVSection> getListSectionByCVIdSorted(Long cvId) {
-        List<CVSection> list = cvSectionRepository.findAllByCvId(cvId);
-        //sort order index
-        list.sort(Comparator.comparingInt(CVSection::getOrderIndex));
-        return list;
+        return cvSectionRepository.findAllByCvIdOrderByOrderIndexAsc(cvId);
     }
 
+    /**
+     * Đổi thứ tự sections của CV thuộc user hiện tại: 1 câu UPDATE cho tất cả, không load sectionData để ghi.
+     * Trả về danh sách sections đã sắp xếp như trước.
+     */
     public List<CVSection> reorderCVSection(Long cvId, List<CVSectionRequestReorder> cvSectionRequestReorder) {
-        CV cv = cvRepository.findById(cvId)
-                .orElseThrow(() -> new AppException(ErrorCode.CV_NOT_FOUND));
-        List<CVSection> sections = cv.getSections();
-        for (CVSection section : sections) {
-            cvSectionRequestReorder.stream()
-                    .filter(r -> r.getId().equals(section.getId()))
-                    .findFirst()
-                    .ifPresent(r -> section.setOrderIndex(r.getOrderIndex()));
+        if (cvSectionRequestReorder == null || cvSectionRequestReorder.stream()
+                .anyMatch(item -> item == null || item.getId() == null || item.getOrderIndex() == null)) {
+            throw new AppException(ErrorCode.SECTION_REORDER_INVALID);
         }
-        cvSectionRepository.saveAll(sections);
-        sections.sort(Comparator.comparingInt(CVSection::getOrderIndex));
-        return sections;
+        var context = SecurityContextHolder.getContext();
+        String name = context.getAuthentication().getName();
+
+        // CV của user khác cũng trả CV_NOT_FOUND như patch
+        if (!cvRepository.existsByIdAndUserUsername(cvId, name)) {
+            throw new AppException(ErrorCode.CV_NOT_FOUND);
+        }
+
+        // id trùng thì lấy giá trị cuối cùng trong request
+        Map<Long, Integer> orderIndexById = cvSectionRequestReorder.stream()
+                .collect(Collectors.toMap(CVSectionRequestReorder::getId, CVSectionRequestReorder::getOrderIndex,
+                        (first, last) -> last, LinkedHashMap::new));
+        cvSectionRepository.updateOrderIndexes(cvId, orderIndexById);
+
+        // Thứ tự đổi -> HTML render của CV này không còn đúng
+        renderService.invalidateCVCache(cvId);
+        return cvSectionRepository.findAllByCvIdOrderByOrderIndexAsc(cvId);
     }
 
     public CVSection createCVSection(Long cvId, CVSection cvSection) {
         cvSection.setCv(cvRepository.findById(cvId).orElseThrow(() -> new AppException(ErrorCode.CV_NOT_FOUND)));
-        return cvSectionRepository.save(cvSection);
+        CVSection saved = cvSectionRepository.save(cvSection);
+        renderService.invalidateCVCache(cvId);
+        return saved;
     }
 
     public CVSection updateCVSection(Long sectionId, CVSection cvSection2) {
         CVSection cvSection1 = cvSectionRepository.findById(sectionId).orElseThrow(() -> new AppException(ErrorCode.SECTION_NOT_FOUND));
         cvSectionMapper.updateSection(cvSection1, cvSection2);
-        return cvSectionRepository.save(cvSection1);
+        CVSection saved = cvSectionRepository.save(cvSection1);
+        // Ẩn/hiện, đổi thứ tự hay nội dung đều làm HTML render cũ sai
+        renderService.invalidateCVCache(cvSection1.getCv().getId());
+        return saved;
+    }
+
+    /**
+     * Autosave sectionData bằng JSON Merge Patch
+     */
+    public CVSection patchSectionData(Long sectionId, JsonNode patch) {
+        var context = SecurityContextHolder.getContext();
+        String name = context.getAuthentication().getName();
+
+        // Chỉ patch section thuộc CV của user hiện tại (section.cv.user.username)
+        CVSection section = cvSectionRepository.findByIdAndCvUserUsername(sectionId, name)
+                .orElseThrow(() -> new AppException(ErrorCode.SECTION_NOT_FOUND));
+        section.setSectionData(JsonMergePatch.apply(section.getSectionData(), patch));
+        return cvSectionRepository.save(section);
     }
 
     public Boolean deleteCVSection(Long id) {
+        Optional<Long> cvId = cvSectionRepository.findCvIdById(id);
         cvSectionRepository.deleteById(id);
+        cvId.ifPresent(renderService::invalidateCVCache);
         return true;
     }
 }
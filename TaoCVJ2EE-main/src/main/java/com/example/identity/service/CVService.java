@@ -2,24 +2,33 @@ package com.example.identity.service;
 
 import com.example.identity.dto.request.CVRequest;
 import com.example.identity.dto.response.CVResponse;
+import com.example.identity.dto.response.CVSummaryResponse;
+import com.example.identity.dto.response.CursorPageResponse;
 import com.example.identity.entity.CV;
 import com.example.identity.entity.CVSection;
 import com.example.identity.exception.AppException;
 import com.example.identity.exception.ErrorCode;
 import com.example.identity.mapper.CVMapper;
 import com.example.identity.repository.CVRepository;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class CVService {
+    private static final Map<String, Class<?>> CV_CURSOR_KEYS = Map.of("updatedAt", LocalDateTime.class, "id", Long.class);
+
     CVRepository cvRepository;
     CVMapper cvMapper;
     UserService userService;
@@ -27,19 +36,26 @@ public class CVService {
     RenderService renderService;
     TemplateRenderingService templateRenderingService;
 
-    public List<CVResponse> getAllMyCV() {
+    /**
+     * Danh sách CV của user, phân trang keyset theo (updatedAt, id) giảm dần
+     */
+    public CursorPageResponse<CVSummaryResponse> getAllMyCV(String cursor, Integer size) {
         var context = SecurityContextHolder.getContext();
         String name = context.getAuthentication().getName();
 
-        return cvRepository.findAllByUserUsername(name).stream()
-                .map(cvMapper::toCVResponse)
-                .toList();
+        KeysetScrollPosition position = KeysetCursor.decode(cursor, CV_CURSOR_KEYS);
+        return KeysetCursor.toPage(
+                cvRepository.findByUserUsernameOrderByUpdatedAtDescIdDesc(name, position, KeysetCursor.limit(size)),
+                CVService::toSummary);
     }
 
     public CVResponse getCVById(Long id) {
-        return getAllMyCV().stream()
-                .filter(cv -> cv.getId().equals(id))
-                .findFirst().orElseThrow(() -> new AppException(ErrorCode.CV_NOT_FOUND));
+        var context = SecurityContextHolder.getContext();
+        String name = context.getAuthentication().getName();
+
+        return cvRepository.findByIdAndUserUsername(id, name)
+                .map(cvMapper::toCVResponse)
+                .orElseThrow(() -> new AppException(ErrorCode.CV_NOT_FOUND));
     }
 
     public CVResponse createCV(CVRequest cvRequest) {
@@ -59,8 +75,10 @@ public class CVService {
         }
 
         // gắn section
-        for (CVSection section : cv.getSections()) {
-            section.setCv(cv);
+        if (cv.getSections() != null) {
+            for (CVSection section : cv.getSections()) {
+                section.setCv(cv);
+            }
         }
 
 
@@ -73,29 +91,75 @@ public class CVService {
         return cvMapper.toCVResponse(cvRepository.save(cv));
     }
 
+    /**
+     * Autosave cvData bằng JSON Merge Patch, trả về updatedAt mới
+     */
+    public LocalDateTime patchCVData(Long cvId, JsonNode patch) {
+        return patchCV(cvId, cv -> cv.setCvData(JsonMergePatch.apply(cv.getCvData(), patch)));
+    }
+
+    /**
+     * Autosave customization bằng JSON Merge Patch, trả về updatedAt mới
+     */
+    public LocalDateTime patchCustomization(Long cvId, JsonNode patch) {
+        return patchCV(cvId, cv -> cv.setCustomization(JsonMergePatch.apply(cv.getCustomization(), patch)));
+    }
+
+    private LocalDateTime patchCV(Long cvId, Consumer<CV> patcher) {
+        var context = SecurityContextHolder.getContext();
+        String name = context.getAuthentication().getName();
+
+        // CV của user khác cũng trả CV_NOT_FOUND như getCVById
+        CV cv = cvRepository.findByIdAndUserUsername(cvId, name)
+                .orElseThrow(() -> new AppException(ErrorCode.CV_NOT_FOUND));
+        patcher.accept(cv);
+        // Flush ngay để lấy updatedAt; @DynamicUpdate nên chỉ cột JSON bị patch được ghi
+        return cvRepository.saveAndFlush(cv).getUpdatedAt();
+    }
+
     public Boolean deleteCV(Long cvId) {
         cvRepository.deleteById(cvId);
         return true;
     }
 
+    /**
+     * Nhân đôi CV + sections bằng INSERT ... SELECT trong DB (CV gốc không load lên JVM),
+     * sau đó đọc CV mới 1 lần để trả về CVResponse như trước. Chỉ nhân đôi CV của user hiện tại
+     */
     public CVResponse duplicateCV(Long cvId) {
-        CV cvOld = cvRepository.findById(cvId).orElseThrow(() -> new AppException(ErrorCode.CV_NOT_FOUND));
-        CV cvNew = new CV();
-        cvMapper.duplicateCV(cvNew, cvOld);
-        return cvMapper.toCVResponse(cvRepository.save(cvNew));
+        var context = SecurityContextHolder.getContext();
+        String name = context.getAuthentication().getName();
+
+        // CV của user khác cũng trả CV_NOT_FOUND như getCVById
+        Long newId = cvRepository.duplicate(cvId, name);
+        if (newId == null) {
+            throw new AppException(ErrorCode.CV_NOT_FOUND);
+        }
+        return cvRepository.findWithSectionsById(newId)
+                .map(cvMapper::toCVResponse)
+                .orElseThrow(() -> new AppException(ErrorCode.CV_NOT_FOUND));
     }
 
     /**
-     * Render CV as HTML using Thymeleaf template
+     * Render CV as HTML using Thymeleaf template, streaming straight to the writer
      */
-    public String renderCVAsHtml(Long cvId) {
-        CV cv = cvRepository.findById(cvId)
+    public void renderCVAsHtml(Long cvId, Writer writer) {
+        CV cv = cvRepository.findForRenderById(cvId)
                 .orElseThrow(() -> new AppException(ErrorCode.CV_NOT_FOUND));
         
         if (cv.getTemplate() == null) {
             throw new AppException(ErrorCode.TEMPLATE_NOT_FOUND);
         }
         
-        return templateRenderingService.renderCV(cv, cv.getTemplate());
+        templateRenderingService.renderCV(cv, cv.getTemplate(), writer);
+    }
+
+    private static CVSummaryResponse toSummary(CVRepository.CVSummaryView view) {
+        return CVSummaryResponse.builder()
+                .id(view.getId())
+                .name(view.getName())
+                .thumbnailUrl(view.getThumbnailUrl())
+                .updatedAt(view.getUpdatedAt())
+                .build();
     }
 }
@@ -0,0 +1,304 @@
+package com.example.identity.service;
+
+import com.example.identity.dto.response.ExportJobResponse;
+import com.example.identity.entity.CV;
+import com.example.identity.enums.ExportFormat;
+import com.example.identity.enums.ExportJobStatus;
+import com.example.identity.exception.AppException;
+import com.example.identity.exception.ErrorCode;
+import com.example.identity.repository.CVRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Export CV bất đồng bộ: request chỉ tạo job và trả về jobId, worker pool render ở nền.
+ * Job cho cùng user, cùng CV, cùng format và nội dung không đổi được gộp vào job đã có.
+ * Job gắn với user đã tạo, user khác xem/tải sẽ nhận EXPORT_JOB_NOT_FOUND.
+ * Job lưu hash của PDF: tải về stream thẳng file trong cache PDF trên disk, chỉ đọc bản copy
+ * trong ExportJobStore khi node hiện tại không có file. Job của node chết giữa chừng được chạy lại.
+ */
+@Service
+@Slf4j
+public class ExportJobService {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ExportJobStore jobStore;
+
+    private final CVRepository cvRepository;
+
+    private final TemplateRenderingService templateRenderingService;
+
+    private final PdfRenderService pdfRenderService;
+
+    private final int workerCount;
+
+    private ExecutorService workers;
+
+    private volatile boolean running;
+
+    public ExportJobService(ExportJobStore jobStore,
+                            CVRepository cvRepository,
+                            TemplateRenderingService templateRenderingService,
+                            PdfRenderService pdfRenderService,
+                            @Value("${export.workers:2}") int workerCount) {
+        this.jobStore = jobStore;
+        this.cvRepository = cvRepository;
+        this.templateRenderingService = templateRenderingService;
+        this.pdfRenderService = pdfRenderService;
+        this.workerCount = workerCount;
+    }
+
+    @PostConstruct
+    void startWorkers() {
+        if (workerCount <= 0) {
+            return;
+        }
+        running = true;
+        AtomicInteger index = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "export-worker-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::workLoop);
+        }
+    }
+
+    @PreDestroy
+    void stopWorkers() {
+        running = false;
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Tạo job export, hoặc trả về job đang có nếu nội dung CV không đổi
+     */
+    public ExportJobResponse submit(Long cvId, ExportFormat format) {
+        // Step 1: Kiểm tra CV và format
+        if (format == ExportFormat.DOCX) {
+            throw new AppException(ErrorCode.FEATURE_NOT_IMPLEMENTED);
+        }
+        CV cv = loadForRender(cvId);
+        String username = currentUsername();
+
+        // Step 2: Lưu job trước khi giữ dedupe key, để request khác thấy key thì cũng thấy job
+        String jobId = UUID.randomUUID().toString();
+        ExportJobResponse job = ExportJobResponse.builder()
+                .jobId(jobId)
+                .username(username)
+                .cvId(cvId)
+                .format(format)
+                .status(ExportJobStatus.QUEUED)
+                .createdAt(LocalDateTime.now())
+                .build();
+        jobStore.save(job);
+
+        // Step 3: Dedupe theo (user, cvId, format, hash nội dung); file PDF vẫn dùng chung qua cache PDF
+        String dedupeKey = username + ":" + cvId + ":" + format + ":" + RenderService.contentHash(cv);
+        String owner = jobStore.claimDedupeKey(dedupeKey, jobId);
+        if (!owner.equals(jobId)) {
+            ExportJobResponse existing = jobStore.find(owner).orElse(null);
+            if (existing != null && existing.getStatus() != ExportJobStatus.FAILED) {
+                return deduplicated(cvId, jobId, existing);
+            }
+            // Job cũ lỗi hoặc đã hết hạn thì cho phép chạy lại, trừ khi request khác đã thay trước
+            jobStore.releaseDedupeKey(dedupeKey, owner);
+            String newOwner = jobStore.claimDedupeKey(dedupeKey, jobId);
+            if (!newOwner.equals(jobId)) {
+                ExportJobResponse winner = jobStore.find(newOwner)
+                        .orElseThrow(() -> new AppException(ErrorCode.EXPORT_JOB_NOT_FOUND));
+                return deduplicated(cvId, jobId, winner);
+            }
+        }
+
+        // Step 4: Đưa vào queue
+        jobStore.enqueue(jobId);
+        log.info("Export job {} queued for CV {}", jobId, cvId);
+        return job;
+    }
+
+    /**
+     * Job của user hiện tại; job của user khác cũng báo EXPORT_JOB_NOT_FOUND
+     */
+    public ExportJobResponse getJob(String jobId) {
+        String username = currentUsername();
+        return jobStore.find(jobId)
+                .filter(job -> username.equals(job.getUsername()))
+                .orElseThrow(() -> new AppException(ErrorCode.EXPORT_JOB_NOT_FOUND));
+    }
+
+    /**
+     * Lấy job đã xong, báo lỗi nếu job chưa chạy xong hoặc bị lỗi
+     */
+    public ExportJobResponse getFinishedJob(String jobId) {
+        ExportJobResponse job = getJob(jobId);
+        if (job.getStatus() != ExportJobStatus.DONE) {
+            throw new AppException(ErrorCode.EXPORT_JOB_NOT_READY);
+        }
+        return job;
+    }
+
+    /**
+     * Stream artifact của job đã xong ra output: file trong cache PDF nếu node này có,
+     * không thì bản copy trong ExportJobStore
+     */
+    public void writeArtifact(String jobId, OutputStream output) {
+        ExportJobResponse job = getFinishedJob(jobId);
+        try {
+            if (!copyCachedPdf(job.getArtifactHash(), output)) {
+                byte[] artifact = jobStore.findArtifact(jobId)
+                        .orElseThrow(() -> new AppException(ErrorCode.EXPORT_JOB_NOT_FOUND));
+                output.write(artifact);
+            }
+            output.flush();
+        } catch (IOException e) {
+            log.error("Failed to stream artifact of export job {}", jobId, e);
+            throw new AppException(ErrorCode.PDF_EXPORT_FAILED);
+        }
+    }
+
+    /**
+     * Xử lý một job: render PDF rồi cập nhật trạng thái
+     */
+    void process(String jobId) {
+        ExportJobResponse job = jobStore.find(jobId).orElse(null);
+        if (job == null || job.getStatus() != ExportJobStatus.QUEUED) {
+            return;
+        }
+        jobStore.save(job.toBuilder().status(ExportJobStatus.RUNNING).build());
+
+        try {
+            CV cv = loadForRender(job.getCvId());
+            Path pdf = templateRenderingService.exportCVAsPdf(cv, cv.getTemplate());
+            // Bản copy cho node khác, node này tải thẳng từ cache PDF
+            jobStore.saveArtifact(jobId, Files.readAllBytes(pdf));
+            jobStore.save(job.toBuilder()
+                    .status(ExportJobStatus.DONE)
+                    .downloadUrl("/cvs/export/jobs/" + jobId + "/artifact")
+                    .artifactHash(PdfRenderService.contentHashOf(pdf))
+                    .finishedAt(LocalDateTime.now())
+                    .build());
+            log.info("Export job {} done", jobId);
+        } catch (Exception e) {
+            log.error("Export job {} failed", jobId, e);
+            String error = e instanceof AppException appException
+                    ? appException.getErrorCode().getMessage()
+                    : ErrorCode.PDF_EXPORT_FAILED.getMessage();
+            jobStore.save(job.toBuilder()
+                    .status(ExportJobStatus.FAILED)
+                    .error(error)
+                    .finishedAt(LocalDateTime.now())
+                    .build());
+        }
+    }
+
+    /**
+     * Đưa lại vào queue các job mà node xử lý đã chết trước khi ack (hết lease)
+     */
+    @Scheduled(fixedDelayString = "${export.recovery-interval-ms:60000}")
+    public void requeueAbandonedJobs() {
+        for (String jobId : jobStore.findAbandoned()) {
+            // Nhiều node cùng quét thì chỉ node gỡ được job khỏi processing mới requeue
+            if (!jobStore.claimAbandoned(jobId)) {
+                continue;
+            }
+            ExportJobResponse job = jobStore.find(jobId).orElse(null);
+            if (job == null) {
+                continue;
+            }
+            if (job.getStatus() == ExportJobStatus.RUNNING) {
+                jobStore.save(job.toBuilder().status(ExportJobStatus.QUEUED).build());
+            }
+            if (job.getStatus() == ExportJobStatus.QUEUED || job.getStatus() == ExportJobStatus.RUNNING) {
+                jobStore.enqueue(jobId);
+                log.warn("Export job {} was abandoned by its worker, requeued", jobId);
+            }
+        }
+    }
+
+    // ================= HELPER METHODS =================
+
+    private ExportJobResponse deduplicated(Long cvId, String jobId, ExportJobResponse existing) {
+        jobStore.delete(jobId);
+        log.info("Export of CV {} deduplicated to job {}", cvId, existing.getJobId());
+        return existing;
+    }
+
+    // File có thể vừa bị dọn khỏi cache giữa lúc tìm và lúc mở, khi đó coi như không có
+    private boolean copyCachedPdf(String artifactHash, OutputStream output) throws IOException {
+        Optional<Path> cached = pdfRenderService.findCached(artifactHash);
+        if (cached.isEmpty()) {
+            return false;
+        }
+        try {
+            Files.copy(cached.get(), output);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private void workLoop() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                String jobId = jobStore.poll(POLL_TIMEOUT);
+                if (jobId != null) {
+                    try {
+                        process(jobId);
+                    } finally {
+                        jobStore.ack(jobId);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("Export worker error: {}", e.getMessage());
+                sleepQuietly();
+            }
+        }
+    }
+
+    private static String currentUsername() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+
+    private CV loadForRender(Long cvId) {
+        CV cv = cvRepository.findForRenderById(cvId)
+                .orElseThrow(() -> new AppException(ErrorCode.CV_NOT_FOUND));
+        if (cv.getTemplate() == null) {
+            throw new AppException(ErrorCode.TEMPLATE_NOT_FOUND);
+        }
+        return cv;
+    }
+
+    // Tránh vòng lặp nóng khi Redis trả lỗi liên tục
+    private static void sleepQuietly() {
+        try {
+            Thread.sleep(POLL_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.identity.service;
+
+import com.example.identity.dto.response.ExportJobResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisListCommands.Direction;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lưu trạng thái export job, file kết quả và hàng đợi job trong Redis để mọi node dùng chung
+ * (node nào cũng trả được artifact, không phụ thuộc disk của node đã render).
+ * Worker lấy job bằng BLMOVE sang list processing kèm lease, ack khi xong;
+ * job của node chết giữa chừng (hết lease mà chưa ack) được đưa lại vào queue.
+ * Khi Redis lỗi thì chuyển sang cache/queue trong JVM, job khi đó chỉ được xử lý bởi node hiện tại.
+ * Cache fallback hết hạn cùng TTL với Redis và bị giới hạn theo dung lượng, Redis sập lâu cũng không phình heap.
+ */
+@Component
+@Slf4j
+public class ExportJobStore {
+
+    static final String QUEUE_KEY = "export:queue";
+
+    static final String PROCESSING_KEY = "export:processing";
+
+    static final String LEASE_PREFIX = "export:lease:";
+
+    private static final Duration TTL = Duration.ofHours(1);
+
+    // Chỉ xóa dedupe key nếu nó vẫn trỏ tới job mà caller đã thấy
+    private static final RedisScript<Long> RELEASE_IF_OWNER = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration leaseTtl;
+
+    // Fallback khi Redis không dùng được
+    private final Cache<String, String> localValues;
+
+    private final BlockingQueue<String> localQueue = new LinkedBlockingQueue<>();
+
+    public ExportJobStore(RedisTemplate<String, String> redisTemplate,
+                          ObjectMapper objectMapper,
+                          @Value("${export.lease-ms:600000}") long leaseMs,
+                          @Value("${export.local-fallback.max-bytes:67108864}") long localMaxBytes) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.leaseTtl = Duration.ofMillis(leaseMs);
+        // Weight xấp xỉ số byte của key + value (String Java tối thiểu 1 byte mỗi ký tự)
+        this.localValues = Caffeine.newBuilder()
+                .expireAfterWrite(TTL)
+                .maximumWeight(localMaxBytes)
+                .weigher((String key, String value) -> key.length() + value.length())
+                .build();
+    }
+
+    public void save(ExportJobResponse job) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(job);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize export job " + job.getJobId(), e);
+        }
+        set(jobKey(job.getJobId()), json);
+    }
+
+    public Optional<ExportJobResponse> find(String jobId) {
+        String json = get(jobKey(jobId));
+        if (json == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(json, ExportJobResponse.class));
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed export job {}", jobId);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Gắn jobId với dedupe key nếu chưa có, trả về jobId đang giữ key (có thể là job khác)
+     */
+    public String claimDedupeKey(String dedupeKey, String jobId) {
+        String key = "export:dedupe:" + dedupeKey;
+        try {
+            Boolean claimed = redisTemplate.opsForValue().setIfAbsent(key, jobId, TTL);
+            return Boolean.TRUE.equals(claimed) ? jobId : redisTemplate.opsForValue().get(key);
+        } catch (DataAccessException e) {
+            logFallback(e);
+            String existing = localValues.asMap().putIfAbsent(key, jobId);
+            return existing == null ? jobId : existing;
+        }
+    }
+
+    /**
+     * Bỏ dedupe key nếu nó vẫn do expectedOwner giữ, request khác đã thay thì không động vào
+     */
+    public void releaseDedupeKey(String dedupeKey, String expectedOwner) {
+        String key = "export:dedupe:" + dedupeKey;
+        try {
+            redisTemplate.execute(RELEASE_IF_OWNER, List.of(key), expectedOwner);
+        } catch (DataAccessException e) {
+            logFallback(e);
+        }
+        localValues.asMap().remove(key, expectedOwner);
+    }
+
+    public void delete(String jobId) {
+        String key = jobKey(jobId);
+        try {
+            redisTemplate.delete(key);
+        } catch (DataAccessException e) {
+            logFallback(e);
+        }
+        localValues.invalidate(key);
+    }
+
+    /**
+     * Lưu nội dung file kết quả vào Redis (Base64) cho node không có file trong cache PDF của mình.
+     * Redis lỗi thì bỏ qua: node render vẫn có file trên disk, không giữ PDF trong heap
+     */
+    public void saveArtifact(String jobId, byte[] content) {
+        try {
+            redisTemplate.opsForValue().set("export:artifact:" + jobId, Base64.getEncoder().encodeToString(content), TTL);
+        } catch (DataAccessException e) {
+            logFallback(e);
+        }
+    }
+
+    public Optional<byte[]> findArtifact(String jobId) {
+        return Optional.ofNullable(get("export:artifact:" + jobId))
+                .map(Base64.getDecoder()::decode);
+    }
+
+    public void enqueue(String jobId) {
+        try {
+            redisTemplate.opsForList().leftPush(QUEUE_KEY, jobId);
+        } catch (DataAccessException e) {
+            logFallback(e);
+            localQueue.add(jobId);
+        }
+    }
+
+    /**
+     * Lấy job tiếp theo, ưu tiên job đã rơi vào queue local, chờ tối đa timeout.
+     * Job lấy từ Redis nằm trong list processing cho tới khi ack
+     */
+    public String poll(Duration timeout) throws InterruptedException {
+        String local = localQueue.poll();
+        if (local != null) {
+            return local;
+        }
+        try {
+            String jobId = redisTemplate.opsForList()
+                    .move(QUEUE_KEY, Direction.RIGHT, PROCESSING_KEY, Direction.LEFT, timeout);
+            if (jobId != null) {
+                redisTemplate.opsForValue().set(LEASE_PREFIX + jobId, "1", leaseTtl);
+            }
+            return jobId;
+        } catch (DataAccessException e) {
+            logFallback(e);
+            return localQueue.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Xác nhận job đã xử lý xong (thành công hay lỗi), bỏ khỏi list processing
+     */
+    public void ack(String jobId) {
+        try {
+            redisTemplate.opsForList().remove(PROCESSING_KEY, 1, jobId);
+            redisTemplate.delete(LEASE_PREFIX + jobId);
+        } catch (DataAccessException e) {
+            logFallback(e);
+        }
+    }
+
+    /**
+     * Job trong list processing đã hết lease, tức node xử lý đã chết trước khi ack
+     */
+    public List<String> findAbandoned() {
+        try {
+            List<String> processing = redisTemplate.opsForList().range(PROCESSING_KEY, 0, -1);
+            if (processing == null) {
+                return List.of();
+            }
+            return processing.stream()
+                    .filter(jobId -> !Boolean.TRUE.equals(redisTemplate.hasKey(LEASE_PREFIX + jobId)))
+                    .toList();
+        } catch (DataAccessException e) {
+            logFallback(e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Gỡ job bị bỏ dở khỏi list processing, trả về false nếu node khác đã gỡ trước
+     */
+    public boolean claimAbandoned(String jobId) {
+        try {
+            Long removed = redisTemplate.opsForList().remove(PROCESSING_KEY, 1, jobId);
+            return removed != null && removed > 0;
+        } catch (DataAccessException e) {
+            logFallback(e);
+            return false;
+        }
+    }
+
+    // ================= HELPER METHODS =================
+
+    private void set(String key, String value) {
+        try {
+            redisTemplate.opsForValue().set(key, value, TTL);
+            localValues.invalidate(key);
+        } catch (DataAccessException e) {
+            logFallback(e);
+            localValues.put(key, value);
+        }
+    }
+
+    private String get(String key) {
+        String local = localValues.getIfPresent(key);
+        if (local != null) {
+            return local;
+        }
+        try {
+            return redisTemplate.opsForValue().get(key);
+        } catch (DataAccessException e) {
+            logFallback(e);
+            return null;
+        }
+    }
+
+    private static String jobKey(String jobId) {
+        return "export:job:" + jobId;
+    }
+
+    private static void logFallback(DataAccessException e) {
+        log.warn("Redis unavailable for export jobs, using local fallback: {}", e.getMessage());
+    }
+}
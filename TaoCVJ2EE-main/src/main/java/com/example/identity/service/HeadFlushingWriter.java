@@ -0,0 +1,71 @@
+package com.example.identity.service;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer flush ngay sau khi thẻ đóng </head> được ghi ra,
+ * để browser bắt đầu tải CSS/font trong lúc phần body vẫn đang render.
+ * Sau lần flush đầu tiên thì chỉ ghi thẳng xuống writer bên dưới.
+ */
+public class HeadFlushingWriter extends FilterWriter {
+
+    private static final String HEAD_END = "</head>";
+
+    // Giữ lại vài ký tự cuối để bắt được "</head>" bị cắt giữa 2 lần write
+    private final StringBuilder tail = new StringBuilder();
+
+    private boolean headFlushed;
+
+    public HeadFlushingWriter(Writer out) {
+        super(out);
+    }
+
+    /**
+     * Đã flush phần head ra client chưa (response đã commit, không đổi được status nữa)
+     */
+    public boolean isHeadFlushed() {
+        return headFlushed;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        super.write(c);
+        scan(String.valueOf((char) c));
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        super.write(cbuf, off, len);
+        if (!headFlushed) {
+            scan(new String(cbuf, off, len));
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        super.write(str, off, len);
+        if (!headFlushed) {
+            scan(str.substring(off, off + len));
+        }
+    }
+
+    private void scan(String chunk) throws IOException {
+        if (headFlushed) {
+            return;
+        }
+
+        tail.append(chunk);
+        if (tail.toString().toLowerCase().contains(HEAD_END)) {
+            headFlushed = true;
+            tail.setLength(0);
+            flush();
+            return;
+        }
+
+        if (tail.length() > HEAD_END.length()) {
+            tail.delete(0, tail.length() - HEAD_END.length());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.identity.service;
+
+import com.example.identity.entity.InvalidatedToken;
+import com.example.identity.repository.InvalidatedTokenRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Lưu jti bị thu hồi trong bảng invalidated_token (dùng khi không có Redis bền).
+ * Bảng không tự hết hạn, row cũ được TokenCleanupScheduler dọn định kỳ.
+ */
+@Service
+@ConditionalOnProperty(name = "auth.revocation.store", havingValue = "jpa")
+@RequiredArgsConstructor
+public class JpaRevocationStore implements RevocationStore {
+
+    private final InvalidatedTokenRepository tokenRepository;
+
+    @Override
+    public void save(String jti, Date expirationTime, Duration ttl) {
+        tokenRepository.save(InvalidatedToken.builder()
+                .id(jti)
+                .expirationTime(expirationTime)
+                .build());
+    }
+
+    @Override
+    public boolean contains(String jti) {
+        return tokenRepository.existsById(jti);
+    }
+
+    @Override
+    public Map<String, Date> findExpiringAfter(Date threshold) {
+        return tokenRepository.findAllByExpirationTimeAfter(threshold).stream()
+                .collect(Collectors.toMap(InvalidatedToken::getId, InvalidatedToken::getExpirationTime));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.identity.service;
+
+import com.example.identity.mapper.LazyJsonNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Map;
+
+/**
+ * JSON Merge Patch (RFC 7396): patch là object thì merge từng field (null = xóa field),
+ * còn lại thì thay thế toàn bộ giá trị.
+ * Client autosave chỉ gửi phần thay đổi thay vì cả cvData/customization/sectionData.
+ */
+public final class JsonMergePatch {
+
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private JsonMergePatch() {
+    }
+
+    /**
+     * Áp patch lên target. Object của target được sửa trực tiếp (không copy cả cây),
+     * luôn dùng giá trị trả về vì gốc có thể bị thay thế.
+     */
+    public static JsonNode apply(JsonNode target, JsonNode patch) {
+        if (patch == null || !patch.isObject()) {
+            return patch;
+        }
+
+        JsonNode current = LazyJsonNode.unwrap(target);
+        ObjectNode result = current != null && current.isObject()
+                ? (ObjectNode) current
+                : JsonNodeFactory.instance.objectNode();
+
+        for (Map.Entry<String, JsonNode> entry : patch.properties()) {
+            if (entry.getValue().isNull()) {
+                result.remove(entry.getKey());
+            } else {
+                result.set(entry.getKey(), apply(result.get(entry.getKey()), entry.getValue()));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.identity.service;
+
+import com.example.identity.dto.response.CursorPageResponse;
+import com.example.identity.exception.AppException;
+import com.example.identity.exception.ErrorCode;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Mã hóa/giải mã cursor của phân trang keyset.
+ * Cursor là base64url của JSON chứa giá trị các cột sort của phần tử cuối trang trước.
+ */
+public final class KeysetCursor {
+
+    public static final int DEFAULT_SIZE = 20;
+
+    public static final int MAX_SIZE = 100;
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * Số phần tử mỗi trang, mặc định DEFAULT_SIZE và không vượt quá MAX_SIZE
+     */
+    public static Limit limit(Integer size) {
+        if (size == null || size <= 0) {
+            return Limit.of(DEFAULT_SIZE);
+        }
+        return Limit.of(Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * Giải mã cursor thành vị trí keyset, cursor rỗng nghĩa là trang đầu.
+     * keyTypes khai báo kiểu của từng cột sort để bind đúng tham số khi so sánh.
+     */
+    public static KeysetScrollPosition decode(String cursor, Map<String, Class<?>> keyTypes) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            Map<String, Object> raw = MAPPER.readValue(json, new TypeReference<>() {});
+            Map<String, Object> keys = new LinkedHashMap<>();
+            for (Map.Entry<String, Class<?>> key : keyTypes.entrySet()) {
+                Object value = raw.get(key.getKey());
+                if (value == null) {
+                    throw new AppException(ErrorCode.INVALID_CURSOR);
+                }
+                keys.put(key.getKey(), MAPPER.convertValue(value, key.getValue()));
+            }
+            return ScrollPosition.forward(keys);
+        } catch (AppException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new AppException(ErrorCode.INVALID_CURSOR);
+        }
+    }
+
+    public static String encode(ScrollPosition position) {
+        if (!(position instanceof KeysetScrollPosition keyset)) {
+            throw new IllegalArgumentException("Only keyset positions can be encoded");
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(keyset.getKeys()));
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot encode cursor", e);
+        }
+    }
+
+    public static <E, R> CursorPageResponse<R> toPage(Window<E> window, Function<E, R> mapper) {
+        boolean hasNext = window.hasNext() && !window.isEmpty();
+        return CursorPageResponse.<R>builder()
+                .items(window.getContent().stream().map(mapper).toList())
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? encode(window.positionAt(window.size() - 1)) : null)
+                .build();
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.identity.service;
+
+import com.example.identity.exception.AppException;
+import com.example.identity.exception.ErrorCode;
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.FSSupplier;
+import com.openhtmltopdf.extend.impl.FSDefaultCacheStore;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Chuyển HTML đã render thành PDF bằng openhtmltopdf (PDFBox).
+ * PDF được cache trên disk theo SHA-256 của HTML, nên export lại một CV không đổi chỉ là copy file.
+ * Cache bị giới hạn theo tổng dung lượng và tuổi: file lâu không dùng (LRU theo last access) bị dọn định kỳ.
+ * Font (bytes) và font metrics được nạp một lần và dùng chung cho mọi request,
+ * số PDF render đồng thời bị giới hạn để không làm tràn heap lúc cao điểm.
+ * Đường dẫn tương đối trong HTML (ảnh, CSS) được resolve theo thư mục template, không phải thư mục cache.
+ */
+@Service
+@Slf4j
+public class PdfRenderService {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path cacheDirectory;
+
+    private final String baseUri;
+
+    private final long maxCacheBytes;
+
+    private final long maxCacheAgeMs;
+
+    private final Semaphore renderPermits;
+
+    private final long acquireTimeoutMs;
+
+    // Font metrics parse từ file TTF, dùng chung giữa các lần render (thread-safe)
+    private final FSCacheEx<String, FSCacheValue> fontMetricsCache = new FSDefaultCacheStore();
+
+    // Bytes của font đọc từ disk một lần, mỗi lần render chỉ mở stream trên bộ nhớ
+    private final List<FontData> fonts = new ArrayList<>();
+
+    public PdfRenderService(@Value("${pdf.cache.path:${template.storage.path:src/main/resources/templates/cv}/pdf-cache}") String cachePath,
+                            @Value("${pdf.assets.path:${template.storage.path:src/main/resources/templates/cv}}") String assetsPath,
+                            @Value("${pdf.fonts.path:}") String fontsPath,
+                            @Value("${pdf.render.max-concurrent:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int maxConcurrent,
+                            @Value("${pdf.render.acquire-timeout-ms:10000}") long acquireTimeoutMs,
+                            @Value("${pdf.cache.max-bytes:536870912}") long maxCacheBytes,
+                            @Value("${pdf.cache.max-age-ms:86400000}") long maxCacheAgeMs) {
+        this.cacheDirectory = Paths.get(cachePath);
+        this.baseUri = directoryUri(Paths.get(assetsPath));
+        this.maxCacheBytes = maxCacheBytes;
+        this.maxCacheAgeMs = maxCacheAgeMs;
+        this.renderPermits = new Semaphore(maxConcurrent, true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        loadFonts(fontsPath);
+    }
+
+    /**
+     * Trả về file PDF của HTML trong cache, render mới nếu chưa có
+     */
+    public Path renderToCache(String html) {
+        try {
+            return getOrRender(html);
+        } catch (IOException e) {
+            log.error("Failed to render PDF", e);
+            throw new AppException(ErrorCode.PDF_EXPORT_FAILED);
+        }
+    }
+
+    /**
+     * File PDF trong cache theo hash nội dung (tên file đã trả về từ renderToCache)
+     */
+    public Optional<Path> findCached(String contentHash) {
+        if (contentHash == null || !HASH.matcher(contentHash).matches()) {
+            return Optional.empty();
+        }
+        Path pdf = cacheDirectory.resolve(contentHash + ".pdf");
+        if (!Files.exists(pdf)) {
+            return Optional.empty();
+        }
+        touch(pdf);
+        return Optional.of(pdf);
+    }
+
+    /**
+     * Dọn cache: xóa file quá tuổi, sau đó xóa file ít dùng nhất tới khi tổng dung lượng dưới giới hạn
+     */
+    @Scheduled(fixedDelayString = "${pdf.cache.sweep-interval-ms:600000}")
+    public void evictCache() {
+        if (!Files.isDirectory(cacheDirectory)) {
+            return;
+        }
+        // Step 1: Xóa file quá tuổi (kể cả file tạm còn sót khi render bị ngắt)
+        long now = System.currentTimeMillis();
+        List<CachedFile> remaining = new ArrayList<>();
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory, "*.{pdf,tmp}")) {
+            for (Path file : files) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                long lastUsed = Math.max(attributes.lastAccessTime().toMillis(), attributes.lastModifiedTime().toMillis());
+                if (now - lastUsed > maxCacheAgeMs) {
+                    deleted += delete(file) ? 1 : 0;
+                } else if (file.getFileName().toString().endsWith(".pdf")) {
+                    remaining.add(new CachedFile(file, lastUsed, attributes.size()));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to sweep PDF cache {}", cacheDirectory, e);
+            return;
+        }
+
+        // Step 2: Vượt dung lượng thì bỏ file dùng lâu nhất trước
+        long totalBytes = remaining.stream().mapToLong(CachedFile::size).sum();
+        remaining.sort(Comparator.comparingLong(CachedFile::lastUsed));
+        for (CachedFile file : remaining) {
+            if (totalBytes <= maxCacheBytes) {
+                break;
+            }
+            if (delete(file.path())) {
+                totalBytes -= file.size();
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            log.info("PDF cache sweep removed {} files, {} bytes left", deleted, totalBytes);
+        }
+    }
+
+    /**
+     * Hash nội dung của file PDF trả về từ renderToCache (tên file bỏ đuôi .pdf), dùng lại với findCached
+     */
+    public static String contentHashOf(Path cachedPdf) {
+        return cachedPdf.getFileName().toString().replaceFirst("\\.pdf$", "");
+    }
+
+    /**
+     * Hash nội dung dùng làm key cache của PDF
+     */
+    public static String contentHash(String html) {
+        return DigestUtils.sha256Hex(html);
+    }
+
+    private Path getOrRender(String html) throws IOException {
+        // Step 1: Cache hit thì trả file có sẵn
+        Path target = cacheDirectory.resolve(contentHash(html) + ".pdf");
+        if (Files.exists(target)) {
+            touch(target);
+            return target;
+        }
+
+        // Step 2: Giới hạn số render đồng thời
+        boolean acquired = false;
+        try {
+            acquired = renderPermits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!acquired) {
+            throw new AppException(ErrorCode.PDF_EXPORT_BUSY);
+        }
+
+        try {
+            // Request khác có thể đã render xong trong lúc chờ permit
+            if (Files.exists(target)) {
+                return target;
+            }
+
+            // Step 3: Render ra file tạm rồi move, để request song song không đọc phải file ghi dở
+            Files.createDirectories(cacheDirectory);
+            Path temp = Files.createTempFile(cacheDirectory, "pdf", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                render(html, out);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("PDF rendered and cached: {}", target.getFileName());
+            return target;
+        } finally {
+            renderPermits.release();
+        }
+    }
+
+    private void render(String html, OutputStream out) throws IOException {
+        // Thymeleaf output là HTML5, parse qua jsoup để openhtmltopdf nhận được DOM hợp lệ
+        org.w3c.dom.Document document = new W3CDom().fromJsoup(Jsoup.parse(html));
+
+        PdfRendererBuilder builder = new PdfRendererBuilder()
+                .useFastMode()
+                .useCacheStore(PdfRendererBuilder.CacheStore.PDF_FONT_METRICS, fontMetricsCache)
+                .withW3cDocument(document, baseUri)
+                .toStream(out);
+        for (FontData font : fonts) {
+            builder.useFont(font.supplier(), font.family());
+        }
+        builder.run();
+    }
+
+    private void loadFonts(String fontsPath) {
+        if (fontsPath == null || fontsPath.isBlank()) {
+            return;
+        }
+        Path directory = Paths.get(fontsPath);
+        if (!Files.isDirectory(directory)) {
+            log.warn("PDF fonts directory not found: {}", directory);
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{ttf,otf}")) {
+            for (Path file : files) {
+                fonts.add(new FontData(fontFamilyOf(file), Files.readAllBytes(file)));
+            }
+            log.info("Loaded {} PDF fonts from {}", fonts.size(), directory);
+        } catch (IOException e) {
+            log.warn("Failed to load PDF fonts from {}", directory, e);
+        }
+    }
+
+    // Đánh dấu lần dùng gần nhất bằng last access time, mtime vẫn là lúc render
+    private static void touch(Path file) {
+        try {
+            Files.getFileAttributeView(file, BasicFileAttributeView.class)
+                    .setTimes(null, FileTime.fromMillis(System.currentTimeMillis()), null);
+        } catch (IOException e) {
+            log.debug("Cannot update access time of {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Cannot delete cached PDF {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    // URI thư mục phải kết thúc bằng "/" để đường dẫn tương đối resolve vào bên trong
+    private static String directoryUri(Path directory) {
+        String uri = directory.toAbsolutePath().normalize().toUri().toString();
+        return uri.endsWith("/") ? uri : uri + "/";
+    }
+
+    // Roboto-Regular.ttf -> Roboto
+    private static String fontFamilyOf(Path font) {
+        String name = font.getFileName().toString().replaceFirst("\\.[^.]+$", "");
+        int dash = name.indexOf('-');
+        return dash > 0 ? name.substring(0, dash) : name;
+    }
+
+    private record FontData(String family, byte[] bytes) {
+        FSSupplier<InputStream> supplier() {
+            return () -> new ByteArrayInputStream(bytes);
+        }
+    }
+
+    private record CachedFile(Path path, long lastUsed, long size) {
+    }
+}
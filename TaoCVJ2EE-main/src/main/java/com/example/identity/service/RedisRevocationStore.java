@@ -0,0 +1,136 @@
+package com.example.identity.service;
+
+import com.example.identity.entity.InvalidatedToken;
+import com.example.identity.repository.InvalidatedTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mỗi jti là một key có TTL đúng bằng thời gian còn phải chặn, Redis tự xóa khi hết hạn:
+ * không cần job dọn dẹp, không phình bảng.
+ * Sorted set index (score = expirationTime) để nạp lại blacklist mà không quét keyspace,
+ * phần đã hết hạn của index được cắt ở mỗi lần nạp.
+ * Key và index được ghi trong 1 script Lua, không có trạng thái có key mà thiếu index.
+ * Chuyển từ store jpa: khi auth.revocation.import-legacy bật, lần nạp đầu tiên chép các row
+ * invalidated_token còn hiệu lực sang Redis rồi xóa hết bảng; trước đó contains đọc cả hai nơi.
+ */
+@Service
+@ConditionalOnProperty(name = "auth.revocation.store", havingValue = "redis", matchIfMissing = true)
+@Slf4j
+public class RedisRevocationStore implements RevocationStore {
+
+    static final String KEY_PREFIX = "auth:revoked:";
+
+    static final String INDEX_KEY = "auth:revoked-index";
+
+    // KEYS: key của jti, index; ARGV: expirationTime (ms), TTL (ms), jti
+    static final RedisScript<Long> SAVE = new DefaultRedisScript<>(
+            "redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[2]) "
+                    + "redis.call('zadd', KEYS[2], ARGV[1], ARGV[3]) return 1",
+            Long.class);
+
+    private static final int LEGACY_BATCH_SIZE = 1000;
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private final InvalidatedTokenRepository tokenRepository;
+
+    private final boolean importLegacy;
+
+    // Đã chép xong bảng invalidated_token sang Redis (mỗi node chép lại một lần khi khởi động, ghi đè không sao)
+    private volatile boolean legacyImported;
+
+    public RedisRevocationStore(RedisTemplate<String, String> redisTemplate,
+                                InvalidatedTokenRepository tokenRepository,
+                                @Value("${auth.revocation.import-legacy:true}") boolean importLegacy) {
+        this.redisTemplate = redisTemplate;
+        this.tokenRepository = tokenRepository;
+        this.importLegacy = importLegacy;
+    }
+
+    @Override
+    public void save(String jti, Date expirationTime, Duration ttl) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            return;
+        }
+        redisTemplate.execute(SAVE, List.of(KEY_PREFIX + jti, INDEX_KEY),
+                String.valueOf(expirationTime.getTime()), String.valueOf(ttl.toMillis()), jti);
+    }
+
+    @Override
+    public boolean contains(String jti) {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + jti))) {
+            return true;
+        }
+        return importLegacy && !legacyImported && tokenRepository.existsById(jti);
+    }
+
+    @Override
+    public Map<String, Date> findExpiringAfter(Date threshold) {
+        if (importLegacy && !legacyImported) {
+            importLegacy(threshold);
+        }
+
+        ZSetOperations<String, String> index = redisTemplate.opsForZSet();
+        index.removeRangeByScore(INDEX_KEY, Double.NEGATIVE_INFINITY, threshold.getTime());
+
+        Set<ZSetOperations.TypedTuple<String>> entries =
+                index.rangeByScoreWithScores(INDEX_KEY, threshold.getTime(), Double.POSITIVE_INFINITY);
+        Map<String, Date> result = new HashMap<>();
+        if (entries != null) {
+            for (ZSetOperations.TypedTuple<String> entry : entries) {
+                result.put(entry.getValue(), new Date(entry.getScore().longValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Chép các row còn hiệu lực của store jpa cũ rồi xóa bảng (theo lô), vì ở chế độ redis
+     * không còn TokenCleanupScheduler dọn nó. threshold = now - thời gian giữ sau exp
+     * (TokenRevocationService.resync) nên jti phải chặn tới expirationTime + (now - threshold).
+     */
+    private void importLegacy(Date threshold) {
+        // Step 1: Chép row còn hiệu lực sang Redis
+        long retentionAfterExpiry = System.currentTimeMillis() - threshold.getTime();
+        List<InvalidatedToken> rows = tokenRepository.findAllByExpirationTimeAfter(threshold);
+        for (InvalidatedToken row : rows) {
+            long removeAt = row.getExpirationTime().getTime() + retentionAfterExpiry;
+            save(row.getId(), row.getExpirationTime(), Duration.ofMillis(removeAt - System.currentTimeMillis()));
+        }
+
+        // Step 2: Đã nằm trong Redis thì xóa khỏi bảng
+        List<String> ids = rows.stream().map(InvalidatedToken::getId).toList();
+        for (int from = 0; from < ids.size(); from += LEGACY_BATCH_SIZE) {
+            tokenRepository.deleteAllByIdInBatch(ids.subList(from, Math.min(from + LEGACY_BATCH_SIZE, ids.size())));
+        }
+
+        // Step 3: Row đã quá hạn refresh không cần chép, xóa luôn
+        int expired = 0;
+        List<String> expiredIds;
+        do {
+            expiredIds = tokenRepository.findExpiredIds(threshold, Limit.of(LEGACY_BATCH_SIZE));
+            if (!expiredIds.isEmpty()) {
+                tokenRepository.deleteAllByIdInBatch(expiredIds);
+                expired += expiredIds.size();
+            }
+        } while (expiredIds.size() == LEGACY_BATCH_SIZE);
+
+        legacyImported = true;
+        log.info("Imported {} revoked tokens from invalidated_token, deleted {} expired rows", rows.size(), expired);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.identity.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cache 2 tầng cho HTML CV đã render:
+ * L1 = Caffeine trong JVM (giới hạn theo số byte), L2 = Redis dùng chung giữa các node.
+ * Khi invalidate, node gửi cvId qua Redis pub/sub để mọi node cùng xóa L1.
+ */
+@Service
+@Slf4j
+public class RenderCacheService implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "render:invalidate";
+
+    private static final Duration TTL = Duration.ofMinutes(15);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private final Cache<String, String> localCache;
+
+    public RenderCacheService(RedisTemplate<String, String> redisTemplate,
+                              @Value("${render.cache.local-max-bytes:67108864}") long localMaxBytes) {
+        this.redisTemplate = redisTemplate;
+        this.localCache = Caffeine.newBuilder()
+                .maximumWeight(localMaxBytes)
+                // Ước lượng UTF-16: 2 byte cho mỗi ký tự của key + value
+                .weigher((String key, String html) -> 2 * (key.length() + html.length()))
+                .expireAfterWrite(TTL)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Đọc HTML từ L1, nếu miss thì đọc Redis và nạp lại vào L1
+     */
+    public String get(String key) {
+        String html = localCache.getIfPresent(key);
+        if (html != null) {
+            return html;
+        }
+
+        html = redisTemplate.opsForValue().get(key);
+        if (html != null) {
+            localCache.put(key, html);
+        }
+        return html;
+    }
+
+    /**
+     * Ghi HTML vào L1, Redis và thêm key vào index set của CV
+     */
+    public void put(Long cvId, String key, String html) {
+        localCache.put(key, html);
+        redisTemplate.opsForValue().set(key, html, TTL);
+
+        // Index sống ít nhất bằng entry mới nhất của CV
+        String indexKey = cvIndexKey(cvId);
+        redisTemplate.opsForSet().add(indexKey, key);
+        redisTemplate.expire(indexKey, TTL);
+    }
+
+    /**
+     * Xóa cache của một CV ở Redis và ở L1 của tất cả các node.
+     * Dùng index set của CV nên chỉ tốn O(số entry của CV), không quét keyspace.
+     */
+    public void invalidateCV(Long cvId) {
+        String indexKey = cvIndexKey(cvId);
+        Set<String> keys = redisTemplate.opsForSet().members(indexKey);
+        List<String> toDelete = new ArrayList<>();
+        if (keys != null) {
+            toDelete.addAll(keys);
+        }
+        toDelete.add(indexKey);
+        redisTemplate.delete(toDelete);
+        log.info("Invalidated cache for CV {}, deleted {} keys", cvId, toDelete.size() - 1);
+
+        evictLocal(cvId);
+        redisTemplate.convertAndSend(INVALIDATION_CHANNEL, cvId.toString());
+    }
+
+    /**
+     * Nhận thông báo invalidate từ node khác (kể cả chính node này)
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            evictLocal(Long.valueOf(body));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed render invalidation message: {}", body);
+        }
+    }
+
+    public static String cvKeyPrefix(Long cvId) {
+        return "rendered:cv:" + cvId + ":";
+    }
+
+    private static String cvIndexKey(Long cvId) {
+        return "rendered:index:cv:" + cvId;
+    }
+
+    private void evictLocal(Long cvId) {
+        String prefix = cvKeyPrefix(cvId);
+        localCache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+}
@@ -1,23 +1,35 @@
 package com.example.identity.service;
 
+import com.example.identity.configuration.JsonNodePropertyAccessor;
+import com.example.identity.configuration.ThymeleafContextFactory;
 import com.example.identity.entity.CV;
 import com.example.identity.entity.CVSection;
 import com.example.identity.entity.Template;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,6 +44,37 @@ public class RenderService {
     
     private final RedisTemplate<String, String> redisTemplate;
     
+    private final RenderCacheService renderCacheService;
+    
+    private final ThymeleafContextFactory contextFactory;
+    
+    private final MeterRegistry meterRegistry;
+    
+    // Cùng thư mục với FileTemplateResolver của cvTemplateEngine
+    @Value("${app.templates.path:}")
+    private String templatesPath;
+    
+    private final Cache<String, JsonNode> mergedConfigCache = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .recordStats()
+            .build();
+    
+    private static final Duration FRAGMENT_TTL = Duration.ofHours(6);
+    
+    private static final Pattern SECTION_FRAGMENT = Pattern.compile("th:fragment\\s*=\\s*[\"']section-([A-Za-z0-9_-]+)");
+    
+    // (template id, version, tên file) -> các sectionType mà template khai báo fragment
+    private final Cache<String, Set<String>> declaredFragmentsCache = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .build();
+    
+    @PostConstruct
+    void registerCacheMetrics() {
+        // Hit ratio = cache.gets{result=hit} / cache.gets
+        CaffeineCacheMetrics.monitor(meterRegistry, mergedConfigCache, "render.merged-config");
+    }
+    
     /**
      * Render CV với data thật của user
      */
@@ -46,7 +89,7 @@ public class RenderService {
         
         // Step 1: Check cache
         String cacheKey = buildCacheKey(cv);
-        String cached = redisTemplate.opsForValue().get(cacheKey);
+        String cached = renderCacheService.get(cacheKey);
         if (cached != null) {
             log.debug("Cache HIT for CV {}", cv.getId());
             return cached;
@@ -54,23 +97,22 @@ public class RenderService {
         
         log.debug("Cache MISS for CV {}", cv.getId());
         
-        // Step 2: Merge configs
-        JsonNode mergedConfig = mergeConfigs(
-            cv.getTemplate().getTemplateConfig(),
-            cv.getCustomization()
-        );
+        // Step 2: Merge configs (memoized theo template version + customization)
+        JsonNode mergedConfig = getMergedConfig(cv.getTemplate(), cv.getCustomization());
         
         // Step 3: Build model
         Map<String, Object> model = buildModelFromCV(cv, mergedConfig);
         
         // Step 4: Render
         try {
-            Context context = new Context(Locale.getDefault(), model);
             String templateName = extractTemplateName(cv.getTemplate().getCompiledFilePath());
+            attachSectionFragments(cv.getTemplate(), templateName, model, mergedConfig);
+            
+            Context context = contextFactory.create(model);
             String html = templateEngine.process(templateName, context);
             
             // Step 5: Cache result
-            redisTemplate.opsForValue().set(cacheKey, html, Duration.ofMinutes(15));
+            renderCacheService.put(cv.getId(), cacheKey, html);
             
             return html;
         } catch (Exception e) {
@@ -90,9 +132,9 @@ public class RenderService {
         try {
             Map<String, Object> emptyModel = new HashMap<>();
             emptyModel.put("sections", Collections.emptyList());
-            emptyModel.put("config", objectMapper.convertValue(template.getTemplateConfig(), Map.class));
+            emptyModel.put("config", template.getTemplateConfig());
             
-            Context context = new Context(Locale.getDefault(), emptyModel);
+            Context context = contextFactory.create(emptyModel);
             String templateName = extractTemplateName(template.getCompiledFilePath());
             
             return templateEngine.process(templateName, context);
@@ -106,12 +148,99 @@ public class RenderService {
      * Invalidate cache for specific CV
      */
     public void invalidateCVCache(Long cvId) {
-        String pattern = "rendered:cv:" + cvId + ":*";
-        Set<String> keys = redisTemplate.keys(pattern);
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.delete(keys);
-            log.info("Invalidated cache for CV {}, deleted {} keys", cvId, keys.size());
+        renderCacheService.invalidateCV(cvId);
+    }
+    
+    /**
+     * Gắn HTML đã render sẵn của từng section vào model ("section.html").
+     * Mỗi fragment được cache theo (template id, version, sectionType, hash sectionData + config),
+     * nên khi user sửa một section chỉ section đó phải chạy lại Thymeleaf.
+     * Template dùng fragment bằng cách khai báo th:fragment="section-<sectionType>"
+     * (chỉ thấy biến section và config, đặt trong khối th:remove="all" để lượt render trang bỏ qua)
+     * rồi in ra bằng th:utext="${section.html}".
+     * Chỉ section có fragment được khai báo mới được render riêng; template không có fragment nào
+     * thì bỏ qua hoàn toàn (không thêm lượt Thymeleaf, không ghi Redis).
+     */
+    @SuppressWarnings("unchecked")
+    private void attachSectionFragments(Template template, String templateName,
+                                        Map<String, Object> model, JsonNode mergedConfig) {
+        List<Map<String, Object>> sections = (List<Map<String, Object>>) model.get("sections");
+        if (sections == null || sections.isEmpty()) {
+            return;
+        }
+        
+        Set<String> declared = declaredSectionFragments(template, templateName);
+        if (declared.isEmpty()) {
+            return;
+        }
+        
+        String configHash = DigestUtils.md5Hex(mergedConfig.toString());
+        List<Map<String, Object>> renderable = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (Map<String, Object> section : sections) {
+            Object sectionType = section.get("sectionType");
+            if (sectionType == null || !declared.contains(sectionType.toString())) {
+                continue;
+            }
+            renderable.add(section);
+            keys.add(buildFragmentKey(template, sectionType.toString(), section.get("sectionData"), configHash));
+        }
+        if (renderable.isEmpty()) {
+            return;
         }
+        
+        // Một round trip cho toàn bộ fragment của trang
+        List<String> cached = redisTemplate.opsForValue().multiGet(keys);
+        int misses = 0;
+        for (int i = 0; i < renderable.size(); i++) {
+            Map<String, Object> section = renderable.get(i);
+            String html = cached != null ? cached.get(i) : null;
+            if (html == null) {
+                html = renderSectionFragment(templateName, section, model.get("config"));
+                redisTemplate.opsForValue().set(keys.get(i), html, FRAGMENT_TTL);
+                misses++;
+            }
+            section.put("html", html);
+        }
+        log.debug("Section fragments for template {}: {} cached, {} rendered",
+                template.getId(), renderable.size() - misses, misses);
+    }
+    
+    /**
+     * Các sectionType có th:fragment="section-<sectionType>" trong file template.
+     * Quét file một lần cho mỗi template version; đọc lỗi thì không cache, lần sau quét lại.
+     */
+    private Set<String> declaredSectionFragments(Template template, String templateName) {
+        String key = template.getId() + ":" + Objects.toString(template.getVersion(), "0") + ":" + templateName;
+        Set<String> declared = declaredFragmentsCache.get(key, k -> scanSectionFragments(templateName));
+        return declared != null ? declared : Set.of();
+    }
+    
+    private Set<String> scanSectionFragments(String templateName) {
+        try {
+            String html = Files.readString(Paths.get(templatesPath).resolve(templateName + ".html"));
+            Set<String> declared = new HashSet<>();
+            Matcher matcher = SECTION_FRAGMENT.matcher(html);
+            while (matcher.find()) {
+                declared.add(matcher.group(1));
+            }
+            return Set.copyOf(declared);
+        } catch (IOException e) {
+            log.warn("Cannot scan section fragments of template {}: {}", templateName, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Render một section qua fragment "section-<sectionType>" của template
+     */
+    private String renderSectionFragment(String templateName, Map<String, Object> section, Object config) {
+        Map<String, Object> fragmentModel = new HashMap<>();
+        fragmentModel.put("section", section);
+        fragmentModel.put("config", config);
+        
+        Context context = contextFactory.create(fragmentModel);
+        return templateEngine.process(templateName, Set.of("section-" + section.get("sectionType")), context);
     }
     
     /**
@@ -122,7 +251,7 @@ public class RenderService {
         
         // User info (từ CV.cvData hoặc CV.user)
         if (cv.getCvData() != null && cv.getCvData().has("user")) {
-            model.put("user", objectMapper.convertValue(cv.getCvData().get("user"), Map.class));
+            model.put("user", cv.getCvData().get("user"));
         } else if (cv.getUser() != null) {
             // Fallback: lấy từ User entity
             Map<String, Object> userMap = new HashMap<>();
@@ -143,13 +272,9 @@ public class RenderService {
                     sectionMap.put("sectionType", section.getSectionType());
                     sectionMap.put("isVisible", section.getIsVisible());
                     
-                    // Parse sectionData JSON to List/Map
+                    // sectionData giữ nguyên JsonNode, Thymeleaf đọc qua JsonNodePropertyAccessor
                     if (section.getSectionData() != null) {
-                        if (section.getSectionData().isArray()) {
-                            sectionMap.put("sectionData", objectMapper.convertValue(section.getSectionData(), List.class));
-                        } else {
-                            sectionMap.put("sectionData", objectMapper.convertValue(section.getSectionData(), Map.class));
-                        }
+                        sectionMap.put("sectionData", JsonNodePropertyAccessor.unwrap(section.getSectionData()));
                     } else {
                         sectionMap.put("sectionData", Collections.emptyList());
                     }
@@ -163,11 +288,29 @@ public class RenderService {
         }
         
         // Config (merged template + customization)
-        model.put("config", objectMapper.convertValue(mergedConfig, Map.class));
+        model.put("config", mergedConfig);
         
         return model;
     }
     
+    /**
+     * Lấy config đã merge từ cache, key = (template id, version, hash customization).
+     * templateConfig chỉ đổi khi version tăng nên không cần deepCopy + merge mỗi lần render.
+     * Kết quả dùng chung giữa các request, chỉ được đọc.
+     */
+    private JsonNode getMergedConfig(Template template, JsonNode customization) {
+        if (template.getId() == null) {
+            return mergeConfigs(template.getTemplateConfig(), customization);
+        }
+        
+        String customizationHash = customization == null || customization.isNull() || customization.isEmpty()
+                ? "none"
+                : DigestUtils.md5Hex(customization.toString());
+        String key = template.getId() + ":" + Objects.toString(template.getVersion(), "0") + ":" + customizationHash;
+        
+        return mergedConfigCache.get(key, k -> mergeConfigs(template.getTemplateConfig(), customization));
+    }
+    
     /**
      * Merge template config với user customization
      */
@@ -189,11 +332,11 @@ public class RenderService {
                 // Deep merge for nested objects
                 ObjectNode nestedMerged = (ObjectNode) merged.get(entry.getKey());
                 entry.getValue().fields().forEachRemaining(nested ->
-                    nestedMerged.set(nested.getKey(), nested.getValue())
+                    nestedMerged.set(nested.getKey(), nested.getValue().deepCopy())
                 );
             } else {
                 // Override for non-object values
-                merged.set(entry.getKey(), entry.getValue());
+                merged.set(entry.getKey(), entry.getValue().deepCopy());
             }
         }
         
@@ -204,9 +347,20 @@ public class RenderService {
      * Build cache key từ CV data
      */
     private String buildCacheKey(CV cv) {
+        return RenderCacheService.cvKeyPrefix(cv.getId()) + contentHash(cv);
+    }
+    
+    /**
+     * Hash nội dung CV (data, customization, sections, template version).
+     * Hai CV có cùng hash thì render ra cùng một kết quả.
+     * Section được duyệt theo (orderIndex, id) vì list sections không có thứ tự cố định,
+     * thứ tự và trạng thái ẩn/hiện cũng nằm trong hash.
+     */
+    public static String contentHash(CV cv) {
         StringBuilder dataStr = new StringBuilder();
         dataStr.append(cv.getId());
         dataStr.append(cv.getTemplate().getId());
+        dataStr.append(':').append(Objects.toString(cv.getTemplate().getVersion(), "0"));
         
         if (cv.getCvData() != null) {
             dataStr.append(cv.getCvData().toString());
@@ -217,16 +371,30 @@ public class RenderService {
         }
         
         if (cv.getSections() != null) {
-            cv.getSections().forEach(section -> {
-                dataStr.append(section.getSectionType());
-                if (section.getSectionData() != null) {
-                    dataStr.append(section.getSectionData().toString());
-                }
-            });
+            cv.getSections().stream()
+                    .sorted(Comparator.comparing(CVSection::getOrderIndex, Comparator.nullsLast(Comparator.naturalOrder()))
+                            .thenComparing(CVSection::getId, Comparator.nullsLast(Comparator.naturalOrder())))
+                    .forEach(section -> {
+                        dataStr.append('|').append(section.getId())
+                                .append(':').append(section.getOrderIndex())
+                                .append(':').append(section.getIsVisible())
+                                .append(':').append(section.getSectionType());
+                        if (section.getSectionData() != null) {
+                            dataStr.append(section.getSectionData().toString());
+                        }
+                    });
         }
         
-        String dataHash = DigestUtils.md5Hex(dataStr.toString());
-        return "rendered:cv:" + cv.getId() + ":" + dataHash;
+        return DigestUtils.md5Hex(dataStr.toString());
+    }
+    
+    /**
+     * Build cache key cho fragment của một section
+     */
+    private String buildFragmentKey(Template template, String sectionType, Object sectionData, String configHash) {
+        String dataHash = DigestUtils.md5Hex(String.valueOf(sectionData) + configHash);
+        return "rendered:fragment:" + template.getId() + ":" + Objects.toString(template.getVersion(), "0")
+                + ":" + sectionType + ":" + dataHash;
     }
     
     /**
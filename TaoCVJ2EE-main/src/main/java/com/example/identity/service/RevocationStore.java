@@ -0,0 +1,24 @@
+package com.example.identity.service;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Nơi lưu bền các jti bị thu hồi, nguồn gốc cho blacklist trong bộ nhớ (TokenRevocationService).
+ * Chọn bằng auth.revocation.store: redis (mặc định, tự hết hạn theo TTL) hoặc jpa (bảng invalidated_token).
+ */
+public interface RevocationStore {
+
+    /**
+     * Lưu jti bị thu hồi. Entry cần giữ ít nhất ttl (tới khi token không còn refresh được).
+     */
+    void save(String jti, Date expirationTime, Duration ttl);
+
+    boolean contains(String jti);
+
+    /**
+     * Các jti bị thu hồi có expirationTime sau threshold: jti -> expirationTime
+     */
+    Map<String, Date> findExpiringAfter(Date threshold);
+}
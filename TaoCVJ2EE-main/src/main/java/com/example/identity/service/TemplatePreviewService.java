@@ -0,0 +1,175 @@
+package com.example.identity.service;
+
+import com.example.identity.entity.Template;
+import com.example.identity.exception.AppException;
+import com.example.identity.exception.ErrorCode;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Preview của template (render với sample data) được render một lần khi Admin tạo/cập nhật template,
+ * lưu dạng gzip trên disk theo (template id, version) rồi phục vụ lại cho gallery.
+ */
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@Slf4j
+public class TemplatePreviewService {
+
+    private static final String PREVIEW_SUFFIX = ".html.gz";
+
+    final TemplateRenderingService templateRenderingService;
+
+    @Value("${template.storage.path:src/main/resources/templates/cv}")
+    String templateStoragePath;
+
+    /**
+     * Render preview và lưu artifact gzip cho version hiện tại của template,
+     * xóa artifact của các version cũ
+     */
+    public byte[] generatePreview(Template template) {
+        String html = templateRenderingService.renderTemplatePreview(template);
+        byte[] gzipped = gzip(html);
+
+        try {
+            Path directory = previewDirectory();
+            Files.createDirectories(directory);
+
+            // Ghi ra file tạm rồi move để request song song không đọc phải file ghi dở
+            Path target = directory.resolve(previewFileName(template));
+            Path temp = Files.createTempFile(directory, "preview", ".tmp");
+            Files.write(temp, gzipped);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            deleteOlderVersions(template);
+            log.info("Template preview stored: {}", target);
+        } catch (IOException e) {
+            log.warn("Failed to store preview for template {}", template.getId(), e);
+        }
+        return gzipped;
+    }
+
+    /**
+     * Lấy preview đã gzip, nếu chưa có (template cũ hoặc version mới) thì render một lần
+     */
+    public byte[] getGzippedPreview(Template template) {
+        Path file = previewDirectory().resolve(previewFileName(template));
+        try {
+            return Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return generatePreview(template);
+        } catch (IOException e) {
+            log.warn("Failed to read preview {}", file, e);
+            return generatePreview(template);
+        }
+    }
+
+    /**
+     * Strong ETag theo (template id, version, encoding): bản gzip và bản thường khác byte nên khác ETag
+     */
+    public String etagOf(Template template, boolean gzip) {
+        return "\"template-" + template.getId() + "-v" + Objects.toString(template.getVersion(), "0")
+                + (gzip ? "-gzip" : "") + "\"";
+    }
+
+    /**
+     * If-None-Match có khớp ETag không: header là danh sách "a", W/"b" hoặc *,
+     * so sánh yếu (bỏ W/) theo RFC 9110
+     */
+    public static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void deletePreviews(Template template) {
+        deleteVersions(template, Integer.MAX_VALUE);
+    }
+
+    public static String gunzip(byte[] gzipped) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new AppException(ErrorCode.TEMPLATE_RENDER_FAILED);
+        }
+    }
+
+    // ================= HELPER METHODS =================
+
+    private static byte[] gzip(String html) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(html.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new AppException(ErrorCode.TEMPLATE_RENDER_FAILED);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Chỉ xóa version nhỏ hơn version đang có: request đọc Template cũ (cache chưa kịp xóa)
+     * không được xóa mất artifact của version mới hơn
+     */
+    private void deleteOlderVersions(Template template) {
+        deleteVersions(template, template.getVersion() == null ? 0 : template.getVersion());
+    }
+
+    private void deleteVersions(Template template, int belowVersion) {
+        Path directory = previewDirectory();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        String prefix = previewFilePrefix(template);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + PREVIEW_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String version = name.substring(prefix.length(), name.length() - PREVIEW_SUFFIX.length());
+                if (version.matches("\\d+") && Integer.parseInt(version) < belowVersion) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean old previews for template {}", template.getId(), e);
+        }
+    }
+
+    private Path previewDirectory() {
+        return Paths.get(templateStoragePath).resolve("previews");
+    }
+
+    private static String previewFilePrefix(Template template) {
+        return "template_" + template.getId() + "_v";
+    }
+
+    private static String previewFileName(Template template) {
+        return previewFilePrefix(template) + Objects.toString(template.getVersion(), "0") + PREVIEW_SUFFIX;
+    }
+}
@@ -1,11 +1,10 @@
 package com.example.identity.service;
 
+import com.example.identity.configuration.ThymeleafContextFactory;
 import com.example.identity.entity.CV;
 import com.example.identity.entity.Template;
 import com.example.identity.exception.AppException;
 import com.example.identity.exception.ErrorCode;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
@@ -16,6 +15,7 @@ import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -28,8 +28,12 @@ import java.util.Map;
 @Slf4j
 public class TemplateRenderingService {
 
+    public static final String RENDER_ERROR_MARKER =
+            "<div data-render-error=\"true\" hidden></div><!-- CV render failed, output truncated -->";
+
     final TemplateEngine templateEngine;
-    final ObjectMapper objectMapper;
+    final ThymeleafContextFactory contextFactory;
+    final PdfRenderService pdfRenderService;
 
     @Value("${template.storage.path:src/main/resources/templates/cv}")
     String templateStoragePath;
@@ -43,29 +47,9 @@ public class TemplateRenderingService {
     public String renderCV(CV cv, Template template) {
         log.info("Rendering CV {} with template {}", cv.getId(), template.getId());
 
-        // Step 1: Prepare Thymeleaf context
-        Context context = new Context();
-        
-        // Step 2: Add CV data to context
-        Map<String, Object> cvDataMap = convertJsonNodeToMap(cv.getCvData());
-        context.setVariable("cvData", cvDataMap);
-        
-        // Step 3: Add customization to context
-        if (cv.getCustomization() != null) {
-            Map<String, Object> customizationMap = convertJsonNodeToMap(cv.getCustomization());
-            context.setVariable("customization", customizationMap);
-        }
-        
-        // Step 4: Add template config to context
-        if (template.getTemplateConfig() != null) {
-            Map<String, Object> templateConfigMap = convertJsonNodeToMap(template.getTemplateConfig());
-            context.setVariable("templateConfig", templateConfigMap);
-        }
-
-        // Step 5: Get template name (remove .html extension for Thymeleaf)
+        Context context = buildCVContext(cv, template);
         String templateName = getTemplateNameForThymeleaf(template.getCompiledFilePath());
 
-        // Step 6: Render with Thymeleaf
         try {
             String renderedHtml = templateEngine.process(templateName, context);
             log.info("CV rendered successfully");
@@ -76,6 +60,32 @@ public class TemplateRenderingService {
         }
     }
 
+    /**
+     * Render CV và ghi thẳng ra writer (streaming), không dựng String HTML trong bộ nhớ.
+     * Writer được flush ngay sau </head> để browser tải CSS/font sớm.
+     * Lỗi trước khi flush: ném AppException như bình thường (caller còn trả lỗi được).
+     * Lỗi sau khi flush: response đã là 200 nên không ném nữa, chỉ log và ghi RENDER_ERROR_MARKER
+     * vào cuối trang để client biết HTML bị cắt.
+     */
+    public void renderCV(CV cv, Template template, Writer writer) {
+        log.info("Streaming CV {} with template {}", cv.getId(), template.getId());
+
+        Context context = buildCVContext(cv, template);
+        String templateName = getTemplateNameForThymeleaf(template.getCompiledFilePath());
+        HeadFlushingWriter headFlushingWriter = new HeadFlushingWriter(writer);
+
+        try {
+            templateEngine.process(templateName, context, headFlushingWriter);
+            writer.flush();
+        } catch (Exception e) {
+            log.error("Failed to stream CV {} with template {}", cv.getId(), template.getId(), e);
+            if (!headFlushingWriter.isHeadFlushed()) {
+                throw new AppException(ErrorCode.TEMPLATE_RENDER_FAILED);
+            }
+            writeErrorMarker(writer);
+        }
+    }
+
     /**
      * Render CV preview với sample data
      * Used for template preview in gallery
@@ -83,17 +93,17 @@ public class TemplateRenderingService {
     public String renderTemplatePreview(Template template) {
         log.info("Rendering template preview: {}", template.getId());
 
-        Context context = new Context();
+        Map<String, Object> model = new HashMap<>();
         
         // Add sample CV data
-        Map<String, Object> sampleData = createSampleCVData();
-        context.setVariable("cvData", sampleData);
+        model.put("cvData", createSampleCVData());
         
         // Add template config
         if (template.getTemplateConfig() != null) {
-            Map<String, Object> templateConfigMap = convertJsonNodeToMap(template.getTemplateConfig());
-            context.setVariable("templateConfig", templateConfigMap);
+            model.put("templateConfig", template.getTemplateConfig());
         }
+        
+        Context context = contextFactory.create(model);
 
         String templateName = getTemplateNameForThymeleaf(template.getCompiledFilePath());
 
@@ -108,28 +118,46 @@ public class TemplateRenderingService {
     }
 
     /**
-     * Export CV as PDF (placeholder for future implementation)
+     * Export CV as PDF, trả về file PDF trong cache.
+     * PDF được cache theo hash của HTML nên CV không đổi sẽ không phải render lại.
      */
-    public byte[] exportCVAsPdf(CV cv, Template template) {
+    public Path exportCVAsPdf(CV cv, Template template) {
         String html = renderCV(cv, template);
-        // TODO: Implement HTML to PDF conversion
-        // Use libraries like Flying Saucer, OpenPDF, or iText
-        log.warn("PDF export not yet implemented");
-        throw new AppException(ErrorCode.FEATURE_NOT_IMPLEMENTED);
+        return pdfRenderService.renderToCache(html);
     }
 
     // ================= HELPER METHODS =================
 
     /**
-     * Convert JsonNode to Map for Thymeleaf
+     * Đánh dấu trang bị cắt giữa chừng; client kiểm tra [data-render-error] để báo lỗi / tải lại
      */
-    private Map<String, Object> convertJsonNodeToMap(JsonNode jsonNode) {
+    private void writeErrorMarker(Writer writer) {
         try {
-            return objectMapper.convertValue(jsonNode, Map.class);
-        } catch (Exception e) {
-            log.error("Failed to convert JsonNode to Map", e);
-            return new HashMap<>();
+            writer.write(RENDER_ERROR_MARKER);
+            writer.flush();
+        } catch (IOException e) {
+            // Client đã ngắt kết nối, không còn gì để báo
+            log.debug("Could not write render error marker: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Build Thymeleaf context từ cvData, customization và templateConfig
+     */
+    private Context buildCVContext(CV cv, Template template) {
+        // JsonNode được đưa thẳng vào model, Thymeleaf đọc qua JsonNodePropertyAccessor
+        Map<String, Object> model = new HashMap<>();
+        model.put("cvData", cv.getCvData());
+
+        if (cv.getCustomization() != null) {
+            model.put("customization", cv.getCustomization());
         }
+
+        if (template.getTemplateConfig() != null) {
+            model.put("templateConfig", template.getTemplateConfig());
+        }
+
+        return contextFactory.create(model);
     }
 
     /**
@@ -2,6 +2,7 @@ package com.example.identity.service;
 
 import com.example.identity.dto.TemplateFilterDTO;
 import com.example.identity.dto.request.TemplateRequest;
+import com.example.identity.dto.response.CursorPageResponse;
 import com.example.identity.dto.response.TemplateResponse;
 import com.example.identity.entity.Template;
 import com.example.identity.exception.AppException;
@@ -16,10 +17,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -30,11 +35,9 @@ public class TemplateService {
     TemplateMapper templateMapper;
     TemplateSpecification templateSpecification;
 
-    public List<TemplateResponse> findAll() {
-        log.info("Fetching all templates from database");
-        return templateRepository.findAll().stream()
-                .map(templateMapper::toDtoRes)
-                .toList();
+    public CursorPageResponse<TemplateResponse> findAll(String cursor, Integer size) {
+        log.info("Fetching templates page from database");
+        return filter(new TemplateFilterDTO(), cursor, size);
     }
 
     @Cacheable(value = "templates", key = "#id")
@@ -53,6 +56,7 @@ public class TemplateService {
 
     @Caching(evict = {
             @CacheEvict(value = "templates", key = "#id"),
+            @CacheEvict(value = "templates-entity", key = "#id"),
             @CacheEvict(value = "templates-list", allEntries = true)
     })
     public TemplateResponse editTemplate(Long id, TemplateRequest templateRequest) {
@@ -60,14 +64,23 @@ public class TemplateService {
         Template old = templateRepository.findById(id)
                 .orElseThrow(() -> new AppException(ErrorCode.TEMPLATE_NOT_FOUND));
         templateMapper.updateTemplate(old, templateRequest);
+        // Tăng version để các cache theo (template id, version) không dùng config cũ
+        old.setVersion(old.getVersion() == null ? 1 : old.getVersion() + 1);
         return templateMapper.toDtoRes(templateRepository.save(old));
     }
 
-    public List<TemplateResponse> filter(TemplateFilterDTO filter) {
+    /**
+     * Lọc template, phân trang keyset theo id tăng dần
+     */
+    public CursorPageResponse<TemplateResponse> filter(TemplateFilterDTO filter, String cursor, Integer size) {
         Specification<Template> spec = templateSpecification.filterBy(filter);
-        return templateRepository.findAll(spec).stream()
-                .map(templateMapper::toDtoRes)
-                .toList();
+        KeysetScrollPosition position = KeysetCursor.decode(cursor, Map.of("id", Long.class));
+        Limit limit = KeysetCursor.limit(size);
+        Window<Template> window = templateRepository.findBy(spec, query -> query
+                .sortBy(Sort.by("id"))
+                .limit(limit.max())
+                .scroll(position));
+        return KeysetCursor.toPage(window, templateMapper::toDtoRes);
     }
 
     @Cacheable(value = "templates-entity", key = "#id")
@@ -0,0 +1,162 @@
+package com.example.identity.service;
+
+import com.example.identity.exception.AppException;
+import com.example.identity.exception.ErrorCode;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Blacklist JWT (jti) nằm trong bộ nhớ để luồng xác thực không phải gọi DB/Redis mỗi request.
+ * Bloom filter loại nhanh các jti chưa bị thu hồi (gần như mọi request), tập chính xác jti -> hạn
+ * xác nhận lại khi filter báo "có thể có". Entry chỉ giữ đến khi token không còn refresh được.
+ * RevocationStore (Redis hoặc DB) là nguồn gốc: nạp lúc khởi động, đồng bộ lại định kỳ;
+ * các node báo cho nhau qua Redis pub/sub.
+ * Store lỗi (Redis/DB sập) không thành 500: revoke và isRevoked (trước khi nạp xong) ném
+ * AppException(TOKEN_REVOCATION_UNAVAILABLE) - 503 ở API auth, 401 ở luồng bearer token (fail closed).
+ */
+@Service
+@Slf4j
+public class TokenRevocationService implements MessageListener {
+
+    public static final String REVOCATION_CHANNEL = "auth:revoked";
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevocationStore revocationStore;
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private final int expectedEntries;
+
+    // Token refresh được tới issueTime + refreshable-duration, tức expirationTime + (refreshable - valid)
+    private final long retentionAfterExpiryMillis;
+
+    // jti -> thời điểm (epoch millis) có thể bỏ khỏi blacklist
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter bloomFilter;
+
+    // Chưa nạp được từ store thì kiểm tra thẳng store, không được bỏ sót token đã thu hồi
+    private volatile boolean warmed;
+
+    public TokenRevocationService(RevocationStore revocationStore,
+                                  RedisTemplate<String, String> redisTemplate,
+                                  @Value("${auth.revocation.expected-entries:100000}") int expectedEntries,
+                                  @Value("${jwt.valid-duration}") long validDuration,
+                                  @Value("${jwt.refreshable-duration}") long refreshableDuration) {
+        this.revocationStore = revocationStore;
+        this.redisTemplate = redisTemplate;
+        this.expectedEntries = expectedEntries;
+        this.retentionAfterExpiryMillis = Math.max(0, refreshableDuration - validDuration) * 1000;
+        this.bloomFilter = new BloomFilter(expectedEntries, FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * jti đã bị thu hồi chưa. Sau khi nạp xong không đụng tới store.
+     * Chưa nạp xong mà store lỗi thì ném TOKEN_REVOCATION_UNAVAILABLE thay vì coi như chưa thu hồi.
+     */
+    public boolean isRevoked(String jti) {
+        if (!warmed) {
+            if (revoked.containsKey(jti)) {
+                return true;
+            }
+            try {
+                return revocationStore.contains(jti);
+            } catch (RuntimeException e) {
+                log.warn("Could not check token revocation for {}: {}", jti, e.getMessage());
+                throw new AppException(ErrorCode.TOKEN_REVOCATION_UNAVAILABLE);
+            }
+        }
+        return bloomFilter.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    /**
+     * Thu hồi token: thêm vào blacklist local trước (node này chặn ngay kể cả khi store lỗi),
+     * báo các node khác rồi lưu store. Store lỗi thì ném TOKEN_REVOCATION_UNAVAILABLE để client
+     * thử lại: token chưa chắc bị chặn ở node khác, refresh không được cấp token mới.
+     */
+    public void revoke(String jti, Date expirationTime) {
+        long removeAt = expirationTime.getTime() + retentionAfterExpiryMillis;
+        add(jti, removeAt);
+
+        try {
+            redisTemplate.convertAndSend(REVOCATION_CHANNEL, jti + ":" + removeAt);
+        } catch (RuntimeException e) {
+            // Node khác vẫn nhận được ở lần resync tiếp theo
+            log.warn("Could not publish token revocation for {}: {}", jti, e.getMessage());
+        }
+
+        try {
+            revocationStore.save(jti, expirationTime, Duration.ofMillis(removeAt - System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            log.error("Could not persist token revocation for {}: {}", jti, e.getMessage());
+            throw new AppException(ErrorCode.TOKEN_REVOCATION_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Nhận jti bị thu hồi từ node khác (kể cả chính node này)
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.lastIndexOf(':');
+        try {
+            add(body.substring(0, separator), Long.parseLong(body.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed revocation message: {}", body);
+        }
+    }
+
+    @PostConstruct
+    void warmUp() {
+        try {
+            resync();
+        } catch (RuntimeException e) {
+            log.warn("Could not load revoked tokens, checking the store until next resync: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Nạp lại từ store (bù message pub/sub bị lỡ), bỏ entry hết hạn và build lại bloom filter
+     */
+    @Scheduled(fixedDelayString = "${auth.revocation.resync-ms:300000}",
+            initialDelayString = "${auth.revocation.resync-ms:300000}")
+    public void resync() {
+        long now = System.currentTimeMillis();
+        Map<String, Date> tokens = revocationStore.findExpiringAfter(new Date(now - retentionAfterExpiryMillis));
+
+        synchronized (this) {
+            tokens.forEach((jti, expirationTime) ->
+                    revoked.putIfAbsent(jti, expirationTime.getTime() + retentionAfterExpiryMillis));
+            revoked.values().removeIf(removeAt -> removeAt <= now);
+
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revoked.size() * 2), FALSE_POSITIVE_RATE);
+            revoked.keySet().forEach(rebuilt::put);
+            bloomFilter = rebuilt;
+        }
+        warmed = true;
+        log.info("Revocation list resynced: {} live revoked tokens", revoked.size());
+    }
+
+    // Ghi vào map trước rồi mới vào filter; đồng bộ với resync để filter mới không thiếu jti
+    private synchronized void add(String jti, long removeAt) {
+        if (removeAt <= System.currentTimeMillis()) {
+            return;
+        }
+        revoked.put(jti, removeAt);
+        bloomFilter.put(jti);
+    }
+}
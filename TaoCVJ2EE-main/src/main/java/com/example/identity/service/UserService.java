@@ -5,6 +5,7 @@ import com.example.identity.dto.request.UserCreationRequest;
 import com.example.identity.dto.request.UserStatusRequest;
 import com.example.identity.dto.request.UserUpdateRequest;
 import com.example.identity.dto.response.AuthenticationResponse;
+import com.example.identity.dto.response.CursorPageResponse;
 import com.example.identity.dto.response.UserResponse;
 import com.example.identity.entity.User;
 import com.example.identity.enums.Role;
@@ -15,6 +16,7 @@ import com.example.identity.repository.UserRepository;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -22,7 +24,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.HashSet;
-import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -80,9 +82,10 @@ public class UserService {
     }
 
     @PreAuthorize("hasRole('ADMIN')")
-    public List<UserResponse> getUsers(){
-        return userRepository.findAll().stream()
-                .map(userMapper::toUserResponse).toList();
+    public CursorPageResponse<UserResponse> getUsers(String cursor, Integer size){
+        KeysetScrollPosition position = KeysetCursor.decode(cursor, Map.of("id", String.class));
+        return KeysetCursor.toPage(userRepository.findByOrderByIdAsc(position, KeysetCursor.limit(size)),
+                userMapper::toUserResponse);
     }
 
     public UserResponse getMyInfo() {
@@ -0,0 +1,65 @@
+package com.example.identity.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Cache các bearer token đã verify chữ ký: FE gửi lại cùng một token hàng trăm lần mỗi phút,
+ * lần sau chỉ cần tra cache thay vì parse + HMAC lại.
+ * Key là SHA-256 của token (không giữ token gốc trong bộ nhớ), entry sống tới đúng exp của token.
+ * Token bị thu hồi thì xóa ngay khi logout/refresh, ngoài ra decoder vẫn kiểm tra blacklist mỗi lần hit.
+ */
+@Service
+public class VerifiedTokenCache {
+
+    private final Cache<String, Jwt> cache;
+
+    public VerifiedTokenCache(MeterRegistry meterRegistry,
+                              @Value("${auth.token-cache.max-size:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.creating((String key, Jwt jwt) -> timeToLive(jwt)))
+                .recordStats()
+                .build();
+        // Hit ratio = cache.gets{result=hit} / cache.gets
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "auth.verified-token");
+    }
+
+    public Jwt get(String token) {
+        return cache.getIfPresent(key(token));
+    }
+
+    public void put(String token, Jwt jwt) {
+        cache.put(key(token), jwt);
+    }
+
+    /**
+     * Bỏ token khỏi cache, gọi khi token bị thu hồi
+     */
+    public void invalidate(String token) {
+        cache.invalidate(key(token));
+    }
+
+    private static String key(String token) {
+        return DigestUtils.sha256Hex(token);
+    }
+
+    private static Duration timeToLive(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        if (expiresAt == null) {
+            return Duration.ZERO;
+        }
+        Duration ttl = Duration.between(Instant.now(), expiresAt);
+        return ttl.isNegative() ? Duration.ZERO : ttl;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.identity.configuration;
+
+import com.example.identity.service.TokenRevocationService;
+import com.example.identity.service.VerifiedTokenCache;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CustomJwtDecoderTest {
+
+    private static final String SIGNER_KEY = "e4b7c29a8f0d3d7f5c12a9e74d53b8f6a7c4e1b2d9f0c3a87e5d1b9f6a2c4d8e";
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    private CustomJwtDecoder customJwtDecoder;
+
+    @BeforeEach
+    void setUp() {
+        verifiedTokenCache = new VerifiedTokenCache(meterRegistry, 100);
+        customJwtDecoder = new CustomJwtDecoder(SIGNER_KEY, tokenRevocationService, verifiedTokenCache);
+    }
+
+    private static String token(String jti, long expiresInMillis, String key) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("testuser")
+                .issueTime(new Date())
+                .expirationTime(new Date(System.currentTimeMillis() + expiresInMillis))
+                .claim("scope", "USER")
+                .jwtID(jti)
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS512), claims);
+        jwt.sign(new MACSigner(key.getBytes()));
+        return jwt.serialize();
+    }
+
+    @Test
+    @DisplayName("decode - Token hợp lệ: verify 1 lần, kiểm tra blacklist đúng 1 lần")
+    void decode_validToken() throws Exception {
+        when(tokenRevocationService.isRevoked("jti-1")).thenReturn(false);
+
+        Jwt jwt = customJwtDecoder.decode(token("jti-1", 3_600_000, SIGNER_KEY));
+
+        assertThat(jwt.getSubject()).isEqualTo("testuser");
+        assertThat(jwt.getId()).isEqualTo("jti-1");
+        verify(tokenRevocationService, times(1)).isRevoked("jti-1");
+    }
+
+    @Test
+    @DisplayName("decode - Token đã bị thu hồi thì bị từ chối")
+    void decode_revokedToken() throws Exception {
+        when(tokenRevocationService.isRevoked("jti-1")).thenReturn(true);
+        String token = token("jti-1", 3_600_000, SIGNER_KEY);
+
+        assertThatThrownBy(() -> customJwtDecoder.decode(token))
+                .isInstanceOf(JwtException.class)
+                .hasMessageContaining("revoked");
+    }
+
+    @Test
+    @DisplayName("decode - Token hết hạn hoặc sai chữ ký bị từ chối, không kiểm tra blacklist")
+    void decode_expiredOrTamperedToken() throws Exception {
+        String expired = token("jti-1", -1000, SIGNER_KEY);
+        String wrongKey = token("jti-2", 3_600_000, SIGNER_KEY.replace('e', 'f'));
+
+        assertThatThrownBy(() -> customJwtDecoder.decode(expired)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> customJwtDecoder.decode(wrongKey)).isInstanceOf(JwtException.class);
+        verify(tokenRevocationService, never()).isRevoked("jti-2");
+    }
+
+    @Test
+    @DisplayName("decode - Một decoder dùng chung cho nhiều thread cùng lúc")
+    void decode_concurrentRequests() throws Exception {
+        when(tokenRevocationService.isRevoked(anyString())).thenReturn(false);
+        List<String> tokens = IntStream.range(0, 200)
+                .mapToObj(i -> {
+                    try {
+                        return token("jti-" + i, 3_600_000, SIGNER_KEY);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Jwt>> results = executor.invokeAll(tokens.stream()
+                    .map(t -> (Callable<Jwt>) () -> customJwtDecoder.decode(t))
+                    .toList());
+            for (int i = 0; i < results.size(); i++) {
+                assertThat(results.get(i).get().getId()).isEqualTo("jti-" + i);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("decode - Token lặp lại lấy từ cache, vẫn kiểm tra blacklist mỗi lần; có metric hit")
+    void decode_repeatedToken_servedFromCache() throws Exception {
+        when(tokenRevocationService.isRevoked("jti-1")).thenReturn(false);
+        String token = token("jti-1", 3_600_000, SIGNER_KEY);
+
+        Jwt first = customJwtDecoder.decode(token);
+        Jwt second = customJwtDecoder.decode(token);
+
+        assertThat(second).isSameAs(first);
+        verify(tokenRevocationService, times(2)).isRevoked("jti-1");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "auth.verified-token")
+                .tag("result", "hit").functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("decode - Token trong cache bị thu hồi ở node khác thì bị từ chối ngay")
+    void decode_cachedTokenRevoked() throws Exception {
+        when(tokenRevocationService.isRevoked("jti-1")).thenReturn(false, true);
+        String token = token("jti-1", 3_600_000, SIGNER_KEY);
+        customJwtDecoder.decode(token);
+
+        assertThatThrownBy(() -> customJwtDecoder.decode(token))
+                .isInstanceOf(JwtException.class)
+                .hasMessageContaining("revoked");
+        assertThat(verifiedTokenCache.get(token)).isNull();
+    }
+
+    @Test
+    @DisplayName("decode - Logout xóa token khỏi cache, lần sau phải verify lại")
+    void decode_afterInvalidate_verifiesAgain() throws Exception {
+        when(tokenRevocationService.isRevoked("jti-1")).thenReturn(false);
+        String token = token("jti-1", 3_600_000, SIGNER_KEY);
+        Jwt first = customJwtDecoder.decode(token);
+
+        verifiedTokenCache.invalidate(token);
+
+        assertThat(customJwtDecoder.decode(token)).isNotSameAs(first);
+    }
+}
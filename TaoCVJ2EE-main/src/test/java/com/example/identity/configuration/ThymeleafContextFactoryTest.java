@@ -0,0 +1,71 @@
+package com.example.identity.configuration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ThymeleafContextFactoryTest {
+
+    @Test
+    @DisplayName("Thymeleaf đọc trực tiếp JsonNode trong model, không cần convert sang Map")
+    void rendersJsonNodeModel() throws Exception {
+        JsonNode cvData = new ObjectMapper().readTree("""
+                {"user": {"name": "John Doe", "age": 30},
+                 "skills": ["Java", "Spring"],
+                 "experiences": [{"company": "Tech Corp"}]}
+                """);
+
+        StringTemplateResolver resolver = new StringTemplateResolver();
+        resolver.setTemplateMode(TemplateMode.HTML);
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        engine.setEnableSpringELCompiler(true);
+
+        ThymeleafContextFactory factory = new ThymeleafContextFactory(new StaticApplicationContext());
+        String html = engine.process("""
+                <h1 th:text="${cvData.user.name}"></h1>\
+                <i th:text="${cvData.user.age + 1}"></i>\
+                <b th:each="skill : ${cvData.skills}" th:text="${skill}"></b>\
+                <p th:text="${cvData.experiences[0].company}"></p>\
+                <s th:if="${cvData.missing == null}">none</s>""",
+                factory.create(Map.of("cvData", cvData)));
+
+        assertThat(html).isEqualTo("<h1>John Doe</h1><i>31</i><b>Java</b><b>Spring</b>"
+                + "<p>Tech Corp</p><s>none</s>");
+    }
+
+    @Test
+    @DisplayName("Object/array JSON vẫn là Map/List với template: in ra, th:each Map.Entry, #maps, size()")
+    void jsonObjectsBehaveAsMaps() throws Exception {
+        JsonNode cvData = new ObjectMapper().readTree("""
+                {"user": {"name": "John Doe", "age": 30}, "skills": ["Java", "Spring"]}
+                """);
+
+        StringTemplateResolver resolver = new StringTemplateResolver();
+        resolver.setTemplateMode(TemplateMode.HTML);
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+
+        ThymeleafContextFactory factory = new ThymeleafContextFactory(new StaticApplicationContext());
+        String html = engine.process("""
+                <h1 th:text="${cvData.user}"></h1>\
+                <b th:each="field : ${cvData.user}" th:text="${field.key + '=' + field.value}"></b>\
+                <i th:text="${#maps.containsKey(cvData.user, 'name')}"></i>\
+                <u th:text="${cvData.user.size()}"></u>\
+                <p th:text="${cvData.skills}"></p>\
+                <s th:if="${cvData.user.missing == null}">none</s>""",
+                factory.create(Map.of("cvData", cvData)));
+
+        assertThat(html).isEqualTo("<h1>{name=John Doe, age=30}</h1><b>name=John Doe</b><b>age=30</b>"
+                + "<i>true</i><u>2</u><p>[Java, Spring]</p><s>none</s>");
+    }
+}
@@ -1,17 +1,29 @@
 package com.example.identity.configuration;
 
 import com.example.identity.repository.InvalidatedTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
 
+import java.time.Duration;
 import java.util.Date;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -19,24 +31,70 @@ public class TokenCleanupSchedulerTest {
 
     @Mock
     private InvalidatedTokenRepository invalidatedTokenRepository;
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
-    @InjectMocks
     private TokenCleanupScheduler tokenCleanupScheduler;
 
+    @BeforeEach
+    void setUp() {
+        tokenCleanupScheduler = new TokenCleanupScheduler(invalidatedTokenRepository, redisTemplate, meterRegistry,
+                2, 0, 600_000, 3600, 36000);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
     @Test
-    @DisplayName("Should call deleteExpiredTokens with correct threshold")
-    void cleanupExpiredTokens_shouldCallRepository() {
+    @DisplayName("Xóa theo lô tới khi hết row hết hạn, threshold = now - 9h, ghi metric số row và thời gian")
+    void cleanupExpiredTokens_deletesInChunks() {
         // Given
-        doNothing().when(invalidatedTokenRepository).deleteExpiredTokens(any(Date.class));
+        when(valueOperations.setIfAbsent(eq(TokenCleanupScheduler.LOCK_KEY), anyString(), any(Duration.class)))
+                .thenReturn(true);
+        when(invalidatedTokenRepository.findExpiredIds(any(Date.class), eq(Limit.of(2))))
+                .thenReturn(List.of("a", "b"), List.of("c"));
 
         // When
         tokenCleanupScheduler.cleanupExpiredTokens();
 
         // Then
         ArgumentCaptor<Date> dateCaptor = ArgumentCaptor.forClass(Date.class);
+        verify(invalidatedTokenRepository, times(2)).findExpiredIds(dateCaptor.capture(), eq(Limit.of(2)));
+        verify(invalidatedTokenRepository).deleteAllByIdInBatch(List.of("a", "b"));
+        verify(invalidatedTokenRepository).deleteAllByIdInBatch(List.of("c"));
 
-        verify(invalidatedTokenRepository, times(1)).deleteExpiredTokens(dateCaptor.capture());
+        long nineHoursAgo = System.currentTimeMillis() - Duration.ofHours(9).toMillis();
+        assertThat(dateCaptor.getValue().getTime()).isBetween(nineHoursAgo - 60_000, nineHoursAgo);
+
+        assertThat(meterRegistry.get("token.cleanup.deleted").counter().count()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("token.cleanup.duration").timer().count()).isEqualTo(1);
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(TokenCleanupScheduler.LOCK_KEY)), anyString());
+    }
+
+    @Test
+    @DisplayName("Node khác đang giữ lock thì bỏ qua lượt này")
+    void cleanupExpiredTokens_lockHeldElsewhere_skips() {
+        when(valueOperations.setIfAbsent(eq(TokenCleanupScheduler.LOCK_KEY), anyString(), any(Duration.class)))
+                .thenReturn(false);
+
+        tokenCleanupScheduler.cleanupExpiredTokens();
+
+        verifyNoInteractions(invalidatedTokenRepository);
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any());
+    }
+
+    @Test
+    @DisplayName("Redis lỗi vẫn dọn, không cần lock")
+    void cleanupExpiredTokens_redisDown_stillSweeps() {
+        when(valueOperations.setIfAbsent(eq(TokenCleanupScheduler.LOCK_KEY), anyString(), any(Duration.class)))
+                .thenThrow(new RedisConnectionFailureException("redis down"));
+        when(invalidatedTokenRepository.findExpiredIds(any(Date.class), eq(Limit.of(2)))).thenReturn(List.of());
+
+        tokenCleanupScheduler.cleanupExpiredTokens();
 
-        assertThat(dateCaptor.getValue()).isBefore(new Date());
+        verify(invalidatedTokenRepository).findExpiredIds(any(Date.class), eq(Limit.of(2)));
+        verify(invalidatedTokenRepository, never()).deleteAllByIdInBatch(anyList());
     }
-}
\ No newline at end of file
+}
@@ -2,9 +2,13 @@ package com.example.identity.controller;
 
 import com.example.identity.dto.request.CVRequest;
 import com.example.identity.dto.response.CVResponse;
+import com.example.identity.dto.response.CVSummaryResponse;
+import com.example.identity.dto.response.CursorPageResponse;
 import com.example.identity.exception.AppException;
 import com.example.identity.exception.ErrorCode;
+import com.example.identity.service.BatchRenderService;
 import com.example.identity.service.CVService;
+import com.example.identity.service.ExportJobService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -44,6 +48,12 @@ public class CVControllerTest {
     @MockitoBean
     private CVService cvService;
 
+    @MockitoBean
+    private BatchRenderService batchRenderService;
+
+    @MockitoBean
+    private ExportJobService exportJobService;
+
     private CVRequest cvRequest;
     private CVResponse cvResponse;
     private final Long cvId = 1L;
@@ -71,7 +81,9 @@ public class CVControllerTest {
     @DisplayName("Should get all CVs for the user")
     void getAllMyCV_success() throws Exception {
 
-        when(cvService.getAllMyCV()).thenReturn(List.of(cvResponse));
+        when(cvService.getAllMyCV(null, null)).thenReturn(CursorPageResponse.<CVSummaryResponse>builder()
+                .items(List.of(CVSummaryResponse.builder().id(cvId).name("Test CV").build()))
+                .build());
 
         // When
         mockMvc.perform(get("/cvs"))
@@ -80,7 +92,7 @@ public class CVControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.code").value(1000))
                 .andExpect(jsonPath("$.message").value("Tải danh sách CV thành công"))
-                .andExpect(jsonPath("$.result[0].id").value(cvId));
+                .andExpect(jsonPath("$.result.items[0].id").value(cvId));
     }
 
     @Test
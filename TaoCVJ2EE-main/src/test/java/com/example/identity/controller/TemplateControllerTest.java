@@ -1,9 +1,11 @@
 package com.example.identity.controller;
 
 import com.example.identity.dto.request.TemplateRequest;
+import com.example.identity.dto.response.CursorPageResponse;
 import com.example.identity.dto.response.TemplateResponse;
 import com.example.identity.exception.AppException;
 import com.example.identity.exception.ErrorCode;
+import com.example.identity.service.TemplatePreviewService;
 import com.example.identity.service.TemplateService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -38,6 +40,9 @@ public class TemplateControllerTest {
     @MockitoBean
     private TemplateService templateService;
 
+    @MockitoBean
+    private TemplatePreviewService templatePreviewService;
+
     private TemplateResponse templateResponse;
     private TemplateRequest templateRequest;
 
@@ -74,7 +79,9 @@ public class TemplateControllerTest {
     void findAll_whenTemplatesExist() throws Exception {
         // Given
 
-        when(templateService.findAll()).thenReturn(List.of(templateResponse));
+        when(templateService.findAll(null, null)).thenReturn(CursorPageResponse.<TemplateResponse>builder()
+                .items(List.of(templateResponse))
+                .build());
 
         // When Then
         mockMvc.perform(get("/templates"))
@@ -82,8 +89,8 @@ public class TemplateControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.code").value(1000))
-                .andExpect(jsonPath("$.result[0].id").value(1L))
-                .andExpect(jsonPath("$.result[0].name").value("Modern CV"));
+                .andExpect(jsonPath("$.result.items[0].id").value(1L))
+                .andExpect(jsonPath("$.result.items[0].name").value("Modern CV"));
     }
 
     @Test
@@ -0,0 +1,46 @@
+package com.example.identity.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonNodeJavaTypeTest {
+
+    private final JsonNodeJavaType javaType = new JsonNodeJavaType();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("areEqual - Node mới cùng nội dung bằng snapshot mà không parse snapshot")
+    void areEqual_sameContent_withoutParsing() {
+        LazyJsonNode snapshot = (LazyJsonNode) JsonNodeConverter.fromJson("{\"title\":\"Backend\"}");
+        ObjectNode current = objectMapper.createObjectNode().put("title", "Backend");
+
+        assertThat(javaType.areEqual(current, snapshot)).isTrue();
+        assertThat(javaType.areEqual(snapshot, current)).isTrue();
+        assertThat(snapshot.isMaterialized()).isFalse();
+    }
+
+    @Test
+    @DisplayName("areEqual - Chuỗi từ DB khác khoảng trắng vẫn bằng, nội dung khác thì không bằng")
+    void areEqual_comparesContent() {
+        LazyJsonNode fromDb = (LazyJsonNode) JsonNodeConverter.fromJson("{\"title\": \"Backend\"}");
+
+        assertThat(javaType.areEqual(objectMapper.createObjectNode().put("title", "Backend"), fromDb)).isTrue();
+        assertThat(javaType.areEqual(objectMapper.createObjectNode().put("title", "Frontend"), fromDb)).isFalse();
+    }
+
+    @Test
+    @DisplayName("deepCopy - Snapshot không bị ảnh hưởng khi sửa trực tiếp node gốc")
+    void deepCopy_isolatedFromInPlaceChanges() {
+        ObjectNode current = objectMapper.createObjectNode().put("title", "Backend");
+
+        var snapshot = javaType.getMutabilityPlan().deepCopy(current);
+        current.put("title", "Frontend");
+
+        assertThat(javaType.areEqual(current, snapshot)).isFalse();
+    }
+}
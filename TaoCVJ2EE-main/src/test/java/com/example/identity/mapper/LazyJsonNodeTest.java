@@ -0,0 +1,81 @@
+package com.example.identity.mapper;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LazyJsonNodeTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static LazyJsonNode lazy(String json) {
+        return (LazyJsonNode) JsonNodeConverter.fromJson(json);
+    }
+
+    @Test
+    @DisplayName("with* - Chuyển tiếp cho cây thật, sửa được trực tiếp như ObjectNode")
+    void with_delegatesToMaterializedTree() {
+        LazyJsonNode node = lazy("{\"profile\":{\"name\":\"A\"}}");
+
+        node.withObjectProperty("profile").put("name", "B");
+        node.withArrayProperty("skills").add("Java");
+        node.withObject(JsonPointer.compile("/contact")).put("email", "a@b.c");
+        node.withArray(JsonPointer.compile("/tags"), JsonNode.OverwriteMode.NULLS, false).add("backend");
+
+        assertThat(node.isMaterialized()).isTrue();
+        assertThat(node.at("/profile/name").asText()).isEqualTo("B");
+        assertThat(node.optional("skills")).hasValueSatisfying(skills -> assertThat(skills.get(0).asText()).isEqualTo("Java"));
+        assertThat(JsonNodeConverter.toJson(node))
+                .isEqualTo("{\"profile\":{\"name\":\"B\"},\"skills\":[\"Java\"],\"contact\":{\"email\":\"a@b.c\"},\"tags\":[\"backend\"]}");
+    }
+
+    @Test
+    @DisplayName("Mọi method không final của JsonNode đều được override, không rơi vào mặc định của JsonNode")
+    void overridesEveryNonFinalJsonNodeMethod() {
+        // Helper nội bộ của JsonNode, không phụ thuộc vào kiểu node
+        Set<String> helpers = Set.of("_this", "_reportRequiredViolation");
+        List<String> missing = Arrays.stream(JsonNode.class.getDeclaredMethods())
+                .filter(method -> !method.isSynthetic() && !method.isBridge())
+                .filter(method -> !Modifier.isStatic(method.getModifiers()) && !Modifier.isFinal(method.getModifiers()))
+                .filter(method -> !Modifier.isPrivate(method.getModifiers()))
+                .filter(method -> !helpers.contains(method.getName()))
+                .filter(method -> !isOverridden(method))
+                .map(Method::toGenericString)
+                .toList();
+
+        assertThat(missing).isEmpty();
+    }
+
+    @Test
+    @DisplayName("equals - Đối xứng: không bằng JsonNode thường, bằng LazyJsonNode cùng nội dung theo cả 2 chiều")
+    void equals_isSymmetric() {
+        LazyJsonNode compact = lazy("{\"title\":\"Backend\"}");
+        LazyJsonNode spaced = lazy("{\"title\": \"Backend\"}");
+        ObjectNode plain = objectMapper.createObjectNode().put("title", "Backend");
+
+        assertThat(compact.equals(plain)).isEqualTo(plain.equals(compact)).isFalse();
+        assertThat(compact.equals(spaced)).isEqualTo(spaced.equals(compact)).isTrue();
+        assertThat(compact.hashCode()).isEqualTo(spaced.hashCode());
+        assertThat(LazyJsonNode.unwrap(compact)).isEqualTo(plain);
+    }
+
+    private static boolean isOverridden(Method method) {
+        try {
+            LazyJsonNode.class.getDeclaredMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
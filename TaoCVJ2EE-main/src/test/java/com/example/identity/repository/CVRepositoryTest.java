@@ -1,21 +1,42 @@
 package com.example.identity.repository;
 
 import com.example.identity.entity.CV;
+import com.example.identity.entity.CVSection;
+import com.example.identity.entity.Template;
 import com.example.identity.entity.User;
 import com.example.identity.enums.Role;
+import com.example.identity.service.KeysetCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@DataJpaTest
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.identity.repository.CVRepositoryTest$SqlCapture"
+})
 public class CVRepositoryTest {
 
     @Autowired
@@ -27,6 +48,9 @@ public class CVRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private User testUser;
     private User anotherUser;
     private CV cv1;
@@ -98,4 +122,212 @@ public class CVRepositoryTest {
         assertThat(result).isNotNull();
         assertThat(result).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test findAllForRenderByIdIn - Load CV kèm user và sections, bỏ qua id không tồn tại")
+    void findAllForRenderByIdIn_fetchesAssociations() {
+        // Given
+        entityManager.persist(CVSection.builder().cv(cv1).sectionType("summary").orderIndex(0).build());
+        entityManager.persist(CVSection.builder().cv(cv1).sectionType("skills").orderIndex(1).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<CV> result = cvRepository.findAllForRenderByIdIn(List.of(cv1.getId(), -1L));
+
+        // Then
+        assertThat(result).hasSize(1);
+        assertThat(Hibernate.isInitialized(result.get(0).getUser())).isTrue();
+        assertThat(Hibernate.isInitialized(result.get(0).getSections())).isTrue();
+        assertThat(result.get(0).getSections()).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Test findForRenderById - Render path chỉ tốn 1 câu SQL cho CV, template và sections")
+    void findForRenderById_singleStatement() {
+        // Given
+        Template template = Template.builder().name("Modern").compiledFilePath("template_modern.html").version(1).build();
+        entityManager.persist(template);
+        cv1.setTemplate(template);
+        entityManager.persist(CVSection.builder().cv(cv1).sectionType("summary").orderIndex(0).build());
+        entityManager.persist(CVSection.builder().cv(cv1).sectionType("skills").orderIndex(1).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When - đọc mọi thứ RenderService/TemplateRenderingService cần
+        CV cv = cvRepository.findForRenderById(cv1.getId()).orElseThrow();
+        String compiledFilePath = cv.getTemplate().getCompiledFilePath();
+        List<String> sectionTypes = cv.getSections().stream().map(CVSection::getSectionType).toList();
+
+        // Then
+        assertThat(compiledFilePath).isEqualTo("template_modern.html");
+        assertThat(sectionTypes).containsExactlyInAnyOrder("summary", "skills");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Test findByUserUsernameOrderByUpdatedAtDescIdDesc - Phân trang keyset qua cursor, không trùng, không sót")
+    void findByUserUsername_keysetPages() {
+        // Given - thêm 2 CV, tổng cộng 3 CV của testuser
+        for (int i = 2; i <= 3; i++) {
+            entityManager.persist(CV.builder().name("CV " + i).user(testUser).build());
+        }
+        entityManager.flush();
+
+        // When
+        Window<CVRepository.CVSummaryView> first = cvRepository.findByUserUsernameOrderByUpdatedAtDescIdDesc(
+                "testuser", ScrollPosition.keyset(), Limit.of(2));
+        String cursor = KeysetCursor.encode(first.positionAt(first.size() - 1));
+        Window<CVRepository.CVSummaryView> second = cvRepository.findByUserUsernameOrderByUpdatedAtDescIdDesc(
+                "testuser", KeysetCursor.decode(cursor, Map.of("updatedAt", LocalDateTime.class, "id", Long.class)), Limit.of(2));
+
+        // Then
+        assertThat(first.getContent()).hasSize(2);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).hasSize(1);
+        assertThat(second.hasNext()).isFalse();
+        assertThat(Stream.concat(first.stream(), second.stream()).map(CVRepository.CVSummaryView::getId))
+                .doesNotHaveDuplicates()
+                .hasSize(3);
+        assertThat(cvRepository.findByUserUsernameOrderByUpdatedAtDescIdDesc(
+                "anotheruser", ScrollPosition.keyset(), Limit.of(2))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test findByIdAndUserUsername - Không trả về CV của user khác")
+    void findByIdAndUserUsername_ownerScoped() {
+        assertThat(cvRepository.findByIdAndUserUsername(cv1.getId(), "testuser")).isPresent();
+        assertThat(cvRepository.findByIdAndUserUsername(cv1.getId(), "anotheruser")).isEmpty();
+        assertThat(cvRepository.existsByIdAndUserUsername(cv1.getId(), "testuser")).isTrue();
+        assertThat(cvRepository.existsByIdAndUserUsername(cv1.getId(), "anotheruser")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Test update - Gán JsonNode mới cùng nội dung không sinh UPDATE")
+    void update_sameJsonContent_noUpdate() {
+        // Given
+        ObjectMapper objectMapper = new ObjectMapper();
+        cv1.setCvData(objectMapper.createObjectNode().put("title", "Backend"));
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When - giống CVMapper.updateCV: thay bằng node mới từ request
+        CV cv = cvRepository.findById(cv1.getId()).orElseThrow();
+        cv.setCvData(objectMapper.createObjectNode().put("title", "Backend"));
+        entityManager.flush();
+
+        // Then
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test update - Chỉ ghi cột thay đổi, không ghi lại cột JSON")
+    void update_onlyChangedColumnsWritten() {
+        // Given
+        cv1.setCvData(new ObjectMapper().createObjectNode().put("title", "Backend"));
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        CV cv = cvRepository.findById(cv1.getId()).orElseThrow();
+        cv.setName("CV mới");
+        SqlCapture.STATEMENTS.clear();
+        entityManager.flush();
+
+        // Then
+        // Test bật quote identifier nên bỏ dấu " trước khi so sánh
+        assertThat(SqlCapture.STATEMENTS).map(sql -> sql.replace("\"", ""))
+                .filteredOn(sql -> sql.startsWith("update cv "))
+                .singleElement()
+                .satisfies(sql -> assertThat(sql).contains("name=").doesNotContain("cv_data"));
+    }
+
+    @Test
+    @DisplayName("Benchmark insert - CV + 15 sections: 16 INSERT gom lại còn vài round trip")
+    void save_cvWithSections_batchesInserts() {
+        // Given
+        CV cv = CV.builder().name("CV batch").user(testUser).build();
+        for (int i = 0; i < 15; i++) {
+            cv.addSection(CVSection.builder().sectionType("section-" + i).orderIndex(i).build());
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        SqlCapture.STATEMENTS.clear();
+
+        // When
+        cvRepository.save(cv);
+        entityManager.flush();
+
+        // Then - IDENTITY: 16 câu INSERT riêng lẻ; sequence pooled + batch:
+        // tối đa 2 lần lấy sequence, 1 INSERT cv, 1 batch INSERT cv_section
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(16);
+        assertThat(SqlCapture.STATEMENTS).map(sql -> sql.replace("\"", ""))
+                .filteredOn(sql -> sql.startsWith("insert into cv_section"))
+                .hasSize(1);
+        assertThat(statistics.getPrepareStatementCount())
+                .as("round trip khi lưu CV + 15 sections")
+                .isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Test duplicate - Copy CV và sections bằng INSERT ... SELECT, không load entity")
+    void duplicate_copiesRowsInDatabase() {
+        // Given
+        ObjectMapper objectMapper = new ObjectMapper();
+        cv1.setCvData(objectMapper.createObjectNode().put("title", "Backend"));
+        cv1.setShareToken(UUID.randomUUID());
+        entityManager.persist(CVSection.builder().cv(cv1).sectionType("summary").orderIndex(0)
+                .sectionData(objectMapper.createObjectNode().put("text", "Hello")).build());
+        entityManager.persist(CVSection.builder().cv(cv1).sectionType("skills").orderIndex(1).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When
+        Long newId = cvRepository.duplicate(cv1.getId(), "testuser");
+
+        // Then
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        entityManager.clear();
+        CV copy = cvRepository.findForRenderById(newId).orElseThrow();
+        assertThat(newId).isNotEqualTo(cv1.getId());
+        assertThat(copy.getName()).isEqualTo("CV của testuser");
+        assertThat(copy.getCvData().get("title").asText()).isEqualTo("Backend");
+        assertThat(copy.getShareToken()).isNull();
+        assertThat(copy.getSections()).extracting(CVSection::getSectionType)
+                .containsExactlyInAnyOrder("summary", "skills");
+        assertThat(cvRepository.findForRenderById(cv1.getId()).orElseThrow().getSections()).hasSize(2);
+        assertThat(cvRepository.duplicate(999L, "testuser")).isNull();
+        // User khác không copy được CV của testuser
+        int countBefore = cvRepository.findAllByUserUsername("testuser").size();
+        assertThat(cvRepository.duplicate(cv1.getId(), "otheruser")).isNull();
+        assertThat(cvRepository.findAllByUserUsername("testuser")).hasSize(countBefore);
+
+        // Id lấy thẳng từ cv_seq không trùng block id Hibernate cấp cho insert thường
+        CV inserted = entityManager.persistFlushFind(CV.builder().name("CV mới")
+                .user(userRepository.findByUsername("testuser").orElseThrow()).build());
+        assertThat(inserted.getId()).isNotEqualTo(newId);
+    }
+
+    /**
+     * Ghi lại các câu SQL Hibernate gửi xuống DB
+     */
+    public static class SqlCapture implements StatementInspector {
+
+        static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
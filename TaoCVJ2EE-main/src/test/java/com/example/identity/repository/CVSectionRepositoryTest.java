@@ -4,7 +4,9 @@ import com.example.identity.entity.CV;
 import com.example.identity.entity.CVSection;
 import com.example.identity.entity.User;
 import com.example.identity.enums.Role;
+import com.example.identity.mapper.LazyJsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,7 +14,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -89,6 +93,163 @@ public class CVSectionRepositoryTest {
         assertThat(result.get(0).getSectionType()).isEqualTo("personal_info");
     }
 
+    @Test
+    @DisplayName("Test findByIdAndCvUserUsername - Chỉ trả section khi CV thuộc user đó")
+    void findByIdAndCvUserUsername_checksOwner() {
+        // Given
+        Long sectionId = cvSectionRepository.findAllByCvId(cv1.getId()).get(0).getId();
+
+        // When  Then
+        assertThat(cvSectionRepository.findByIdAndCvUserUsername(sectionId, "testuser")).isPresent();
+        assertThat(cvSectionRepository.findByIdAndCvUserUsername(sectionId, "otheruser")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test findCvIdById - Trả về id CV chứa section, section không tồn tại thì rỗng")
+    void findCvIdById_returnsOwningCv() {
+        // Given
+        Long sectionId = cvSectionRepository.findAllByCvId(cv1.getId()).get(0).getId();
+
+        // When  Then
+        assertThat(cvSectionRepository.findCvIdById(sectionId)).contains(cv1.getId());
+        assertThat(cvSectionRepository.findCvIdById(-1L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test findAllByCvIdOrderByOrderIndexAsc - Sắp xếp theo orderIndex ở DB")
+    void findAllByCvIdOrderByOrderIndexAsc_sorted() {
+        // Given - thêm section có orderIndex nhỏ nhất sau cùng
+        entityManager.persist(CVSection.builder().cv(cv1).sectionType("summary").orderIndex(0).build());
+        entityManager.flush();
+
+        // When
+        List<CVSection> result = cvSectionRepository.findAllByCvIdOrderByOrderIndexAsc(cv1.getId());
+
+        // Then
+        assertThat(result).extracting(CVSection::getSectionType)
+                .containsExactly("summary", "personal_info", "experience");
+    }
+
+    @Test
+    @DisplayName("Test updateOrderIndexes - Cập nhật thứ tự nhiều section, bỏ qua section của CV khác")
+    void updateOrderIndexes_singleStatement() {
+        // Given
+        CVSection other = CVSection.builder().cv(cv2).sectionType("summary").orderIndex(5).build();
+        entityManager.persist(other);
+        List<CVSection> sections = cvSectionRepository.findAllByCvIdOrderByOrderIndexAsc(cv1.getId());
+        Map<Long, Integer> orderIndexById = new LinkedHashMap<>();
+        orderIndexById.put(sections.get(0).getId(), 2);
+        orderIndexById.put(sections.get(1).getId(), 1);
+        orderIndexById.put(other.getId(), 0);
+
+        // When
+        int updated = cvSectionRepository.updateOrderIndexes(cv1.getId(), orderIndexById);
+
+        // Then
+        assertThat(updated).isEqualTo(2);
+        assertThat(cvSectionRepository.findAllByCvIdOrderByOrderIndexAsc(cv1.getId()))
+                .extracting(CVSection::getId)
+                .containsExactly(sections.get(1).getId(), sections.get(0).getId());
+        assertThat(cvSectionRepository.findById(other.getId()).orElseThrow().getOrderIndex()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Test updateOrderIndexes - Section đang load thấy thứ tự mới, entity khác không bị detach")
+    void updateOrderIndexes_refreshesOnlyAffectedSections() {
+        // Given
+        List<CVSection> sections = cvSectionRepository.findAllByCvIdOrderByOrderIndexAsc(cv1.getId());
+        CVSection first = sections.get(0);
+        Map<Long, Integer> orderIndexById = Map.of(first.getId(), 7);
+
+        // When
+        cvSectionRepository.updateOrderIndexes(cv1.getId(), orderIndexById);
+
+        // Then
+        assertThat(first.getOrderIndex()).isEqualTo(7);
+        assertThat(entityManager.getEntityManager().contains(first)).isTrue();
+        assertThat(entityManager.getEntityManager().contains(sections.get(1))).isTrue();
+        assertThat(entityManager.getEntityManager().contains(cv1)).isTrue();
+        assertThat(entityManager.getEntityManager().contains(testUser)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Test sectionData - Lưu dạng JSON native và đọc lại đúng nội dung")
+    void sectionData_storedAsNativeJson() {
+        // Given
+        CVSection section = CVSection.builder()
+                .cv(cv1)
+                .sectionType("skills")
+                .sectionData(new ObjectMapper().createObjectNode().put("text", "Java"))
+                .build();
+        entityManager.persist(section);
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        Object columnType = entityManager.getEntityManager().createNativeQuery(
+                "SELECT data_type FROM information_schema.columns "
+                        + "WHERE LOWER(table_name) = 'cv_section' AND LOWER(column_name) = 'section_data'")
+                .getSingleResult();
+        CVSection loaded = cvSectionRepository.findById(section.getId()).orElseThrow();
+
+        // Then
+        assertThat(columnType).isEqualTo("JSON");
+        assertThat(loaded.getSectionData().get("text").asText()).isEqualTo("Java");
+    }
+
+    @Test
+    @DisplayName("Test sectionData - Không parse JSON khi load/flush mà không đọc tới")
+    void sectionData_notParsedWhenUntouched() {
+        // Given
+        CVSection section = CVSection.builder()
+                .cv(cv1)
+                .sectionType("skills")
+                .sectionData(new ObjectMapper().createObjectNode().put("text", "Java"))
+                .orderIndex(3)
+                .build();
+        entityManager.persist(section);
+        entityManager.flush();
+        entityManager.clear();
+
+        // When - chỉ đổi cột scalar rồi flush
+        CVSection loaded = cvSectionRepository.findById(section.getId()).orElseThrow();
+        loaded.setOrderIndex(0);
+        entityManager.flush();
+
+        // Then
+        assertThat(loaded.getSectionData()).isInstanceOf(LazyJsonNode.class);
+        assertThat(((LazyJsonNode) loaded.getSectionData()).isMaterialized()).isFalse();
+
+        entityManager.clear();
+        CVSection reloaded = cvSectionRepository.findById(section.getId()).orElseThrow();
+        assertThat(reloaded.getOrderIndex()).isEqualTo(0);
+        assertThat(reloaded.getSectionData().get("text").asText()).isEqualTo("Java");
+    }
+
+    @Test
+    @DisplayName("Test sectionData - Sửa trực tiếp cây JSON đã parse vẫn được lưu")
+    void sectionData_inPlaceChangePersisted() {
+        // Given
+        CVSection section = CVSection.builder()
+                .cv(cv1)
+                .sectionType("skills")
+                .sectionData(new ObjectMapper().createObjectNode().put("text", "Java"))
+                .build();
+        entityManager.persist(section);
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        CVSection loaded = cvSectionRepository.findById(section.getId()).orElseThrow();
+        ((ObjectNode) LazyJsonNode.unwrap(loaded.getSectionData())).put("text", "Kotlin");
+        entityManager.flush();
+        entityManager.clear();
+
+        // Then
+        CVSection reloaded = cvSectionRepository.findById(section.getId()).orElseThrow();
+        assertThat(reloaded.getSectionData().get("text").asText()).isEqualTo("Kotlin");
+    }
+
     @Test
     @DisplayName("Test findAllByCvId - Khi CV không có section")
     void findAllByCvId_whenNoSections() {
@@ -0,0 +1,88 @@
+package com.example.identity.repository;
+
+import com.example.identity.configuration.IdSequenceInitializer;
+import com.example.identity.entity.CV;
+import com.example.identity.entity.CVSection;
+import com.example.identity.entity.User;
+import com.example.identity.enums.Role;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Context mới (optimizer chưa cấp id nào, giống lúc app khởi động) và không bọc transaction,
+ * để dữ liệu cũ đã commit trước khi seed sequence
+ */
+@DataJpaTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IdSequenceTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CVRepository cvRepository;
+
+    @Autowired
+    private CVSectionRepository cvSectionRepository;
+
+    @AfterEach
+    void tearDown() {
+        cvSectionRepository.deleteAllInBatch();
+        cvRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("seedSequences - DB cũ đã có id từ AUTO_INCREMENT thì CV/section mới không bị trùng id")
+    void seedSequences_insertAfterExistingRows() {
+        // Given - dữ liệu cũ insert thẳng bằng SQL với id có sẵn (1 và 2 là id sequence mới sẽ cấp đầu tiên)
+        User user = userRepository.save(User.builder()
+                .username("legacy")
+                .email("legacy@example.com")
+                .password("pass")
+                .firstName("Legacy")
+                .lastName("User")
+                .roles(Set.of(Role.USER.name()))
+                .build());
+        // Schema tạo với globally_quoted_identifiers nên tên bảng/cột là chữ thường có quote
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (long id = 1; id <= 60; id++) {
+            jdbcTemplate.update("INSERT INTO \"cv\" (\"id\", \"user_id\", \"name\", \"is_public\") VALUES (?, ?, ?, false)",
+                    id, user.getId(), "CV cũ " + id);
+            jdbcTemplate.update("INSERT INTO \"cv_section\" (\"id\", \"cv_id\", \"section_type\", \"order_index\") VALUES (?, ?, 'summary', 0)",
+                    id, id);
+        }
+
+        // When
+        new IdSequenceInitializer(dataSource).seedSequences();
+        CV cv = CV.builder().name("CV mới").user(user).build();
+        cv.addSection(CVSection.builder().sectionType("skills").orderIndex(0).build());
+        CV saved = cvRepository.saveAndFlush(cv);
+
+        // Then
+        assertThat(saved.getId()).isGreaterThan(60L);
+        assertThat(saved.getSections()).allSatisfy(section -> assertThat(section.getId()).isGreaterThan(60L));
+        assertThat(cvRepository.count()).isEqualTo(61);
+
+        // Seed lại (node khác khởi động) không kéo sequence lùi về
+        new IdSequenceInitializer(dataSource).seedSequences();
+        assertThat(cvRepository.saveAndFlush(CV.builder().name("CV mới 2").user(user).build()).getId())
+                .isGreaterThan(saved.getId());
+    }
+}
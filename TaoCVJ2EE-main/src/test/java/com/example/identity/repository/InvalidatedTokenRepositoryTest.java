@@ -7,10 +7,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -69,21 +71,32 @@ public class InvalidatedTokenRepositoryTest {
     }
 
     @Test
-    @DisplayName("Test deleteExpiredTokens - Xóa token hết hạn")
-    void deleteExpiredTokens_shouldDeleteOnlyExpired() {
+    @DisplayName("Test findExpiredIds + deleteAllByIdInBatch - Xóa theo lô chỉ token hết hạn")
+    void deleteExpiredInBatches_shouldDeleteOnlyExpired() {
         // Given
-        Date threshold = new Date(); //
-
-        // When
-        invalidatedTokenRepository.deleteExpiredTokens(threshold);
+        Date threshold = new Date();
+        entityManager.persist(InvalidatedToken.builder()
+                .id("expired-token-id-2")
+                .expirationTime(Date.from(Instant.now().minus(2, ChronoUnit.HOURS)))
+                .build());
         entityManager.flush();
+
+        // When: lô đầu giới hạn 1 row, lô sau lấy phần còn lại
+        List<String> firstBatch = invalidatedTokenRepository.findExpiredIds(threshold, Limit.of(1));
+        invalidatedTokenRepository.deleteAllByIdInBatch(firstBatch);
+        List<String> secondBatch = invalidatedTokenRepository.findExpiredIds(threshold, Limit.of(1));
+        invalidatedTokenRepository.deleteAllByIdInBatch(secondBatch);
         entityManager.clear();
 
         // Then
-        Optional<InvalidatedToken> foundExpired = invalidatedTokenRepository.findById(String.valueOf("expired-token-id"));
+        assertThat(firstBatch).hasSize(1);
+        assertThat(secondBatch).hasSize(1).doesNotContainAnyElementsOf(firstBatch);
+        assertThat(invalidatedTokenRepository.findExpiredIds(threshold, Limit.of(10))).isEmpty();
+
+        Optional<InvalidatedToken> foundExpired = invalidatedTokenRepository.findById("expired-token-id");
         assertThat(foundExpired).isNotPresent();
 
-        Optional<InvalidatedToken> foundValid = invalidatedTokenRepository.findById(String.valueOf("valid-token-id"));
+        Optional<InvalidatedToken> foundValid = invalidatedTokenRepository.findById("valid-token-id");
         assertThat(foundValid).isPresent();
     }
-}
\ No newline at end of file
+}
@@ -8,6 +8,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 
 import java.util.Optional;
 import java.util.Set;
@@ -112,4 +115,27 @@ public class UserRepositoryTest {
         assertThat(foundUserOpt).isPresent();
         assertThat(foundUserOpt.get().getEmail()).isEqualTo("test@example.com");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test findByOrderByIdAsc - Phân trang keyset theo id")
+    void findByOrderByIdAsc_keysetPages() {
+        // Given
+        entityManager.persistAndFlush(User.builder()
+                .username("seconduser")
+                .email("second@example.com")
+                .password("hashedpassword")
+                .firstName("Second")
+                .lastName("User")
+                .roles(Set.of(Role.USER.name()))
+                .build());
+
+        // When
+        Window<User> first = userRepository.findByOrderByIdAsc(ScrollPosition.keyset(), Limit.of(1));
+        Window<User> second = userRepository.findByOrderByIdAsc(first.positionAt(0), Limit.of(1));
+
+        // Then
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.hasNext()).isFalse();
+        assertThat(second.getContent().get(0).getId()).isGreaterThan(first.getContent().get(0).getId());
+    }
+}
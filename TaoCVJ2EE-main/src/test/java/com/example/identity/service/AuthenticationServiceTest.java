@@ -6,11 +6,9 @@ import com.example.identity.dto.request.LogoutRequest;
 import com.example.identity.dto.request.RefreshTokenRequest;
 import com.example.identity.dto.response.AuthenticationResponse;
 import com.example.identity.dto.response.IntrospectResponse;
-import com.example.identity.entity.InvalidatedToken;
 import com.example.identity.entity.User;
 import com.example.identity.exception.AppException;
 import com.example.identity.exception.ErrorCode;
-import com.example.identity.repository.InvalidatedTokenRepository;
 import com.example.identity.repository.UserRepository;
 import com.nimbusds.jose.JOSEException;
 import org.junit.jupiter.api.BeforeEach;
@@ -42,7 +40,9 @@ public class AuthenticationServiceTest {
     @Mock
     private UserRepository userRepository;
     @Mock
-    private InvalidatedTokenRepository tokenRepository;
+    private TokenRevocationService tokenRevocationService;
+    @Mock
+    private VerifiedTokenCache verifiedTokenCache;
 
     @InjectMocks
     private AuthenticationService authenticationService;
@@ -62,6 +62,7 @@ public class AuthenticationServiceTest {
         ReflectionTestUtils.setField(authenticationService, "SIGNER_KEY", signerKey);
         ReflectionTestUtils.setField(authenticationService, "VALIDATION_DURATION", 3600L);
         ReflectionTestUtils.setField(authenticationService, "REFRESHABLE_DURATION", 36000L);
+        ReflectionTestUtils.invokeMethod(authenticationService, "initKeys");
 
         // Tạo hash mật khẩu thật
         testPasswordHash = passwordEncoder.encode(testPassword);
@@ -137,8 +138,8 @@ public class AuthenticationServiceTest {
         String token = authenticationService.generateToken(user);
         IntrospectRequest request = IntrospectRequest.builder().token(token).build();
 
-        // 2. Ra lệnh: Khi repo.existsById (kiểm tra token có bị logout) -> trả về false
-        when(tokenRepository.existsById(anyString())).thenReturn(false);
+        // 2. Ra lệnh: Khi kiểm tra blacklist (token có bị logout) -> trả về false
+        when(tokenRevocationService.isRevoked(anyString())).thenReturn(false);
 
         // When
         IntrospectResponse response = authenticationService.introspect(request);
@@ -154,8 +155,8 @@ public class AuthenticationServiceTest {
         String token = authenticationService.generateToken(user);
         IntrospectRequest request = IntrospectRequest.builder().token(token).build();
 
-        // Ra lệnh: Khi repo.existsById -> TRẢ VỀ TRUE (token đã bị logout)
-        when(tokenRepository.existsById(anyString())).thenReturn(true);
+        // Ra lệnh: Khi kiểm tra blacklist -> TRẢ VỀ TRUE (token đã bị logout)
+        when(tokenRevocationService.isRevoked(anyString())).thenReturn(true);
 
         // When Then
         IntrospectResponse response = authenticationService.introspect(request);
@@ -169,19 +170,31 @@ public class AuthenticationServiceTest {
         String token = authenticationService.generateToken(user);
         LogoutRequest request = new LogoutRequest(token);
 
-        // Ra lệnh: Khi repo.existsById (kiểm tra token có bị logout) -> trả về false
-        when(tokenRepository.existsById(anyString())).thenReturn(false);
+        // Ra lệnh: Khi kiểm tra blacklist (token có bị logout) -> trả về false
+        when(tokenRevocationService.isRevoked(anyString())).thenReturn(false);
 
         // When
         authenticationService.logout(request);
 
         // Then
-
-        ArgumentCaptor<InvalidatedToken> captor = ArgumentCaptor.forClass(InvalidatedToken.class);
-        verify(tokenRepository).save(captor.capture());
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(tokenRevocationService).revoke(captor.capture(), any(Date.class));
+        verify(verifiedTokenCache).invalidate(token);
 
         assertThat(captor.getValue()).isNotNull();
-        assertThat(captor.getValue().getId()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Test logout - Store thu hồi lỗi thì báo 503, không nuốt lỗi như token hết hạn")
+    void logout_revocationStoreUnavailable() throws JOSEException {
+        String token = authenticationService.generateToken(user);
+        when(tokenRevocationService.isRevoked(anyString())).thenReturn(false);
+        doThrow(new AppException(ErrorCode.TOKEN_REVOCATION_UNAVAILABLE))
+                .when(tokenRevocationService).revoke(anyString(), any(Date.class));
+
+        assertThatThrownBy(() -> authenticationService.logout(new LogoutRequest(token)))
+                .isInstanceOf(AppException.class)
+                .extracting("errorCode").isEqualTo(ErrorCode.TOKEN_REVOCATION_UNAVAILABLE);
     }
 
     @Test
@@ -191,8 +204,8 @@ public class AuthenticationServiceTest {
         String oldToken = authenticationService.generateToken(user);
         RefreshTokenRequest request = new RefreshTokenRequest(oldToken);
 
-        // Ra lệnh: Khi repo.existsById (kiểm tra token cũ) -> trả về false (hợp lệ)
-        when(tokenRepository.existsById(anyString())).thenReturn(false);
+        // Ra lệnh: Khi kiểm tra blacklist (token cũ) -> trả về false (hợp lệ)
+        when(tokenRevocationService.isRevoked(anyString())).thenReturn(false);
         // Ra lệnh: Khi repo.findByUsername -> trả về user
         when(userRepository.findByUsername(user.getUsername())).thenReturn(Optional.of(user));
 
@@ -205,9 +218,10 @@ public class AuthenticationServiceTest {
         assertThat(response.getToken()).isNotNull();
         assertThat(response.getToken()).isNotEqualTo(oldToken);
 
-        // 2. Token cũ đã bị lưu vào blacklist
-        ArgumentCaptor<InvalidatedToken> captor = ArgumentCaptor.forClass(InvalidatedToken.class);
-        verify(tokenRepository).save(captor.capture());
+        // 2. Token cũ đã bị đưa vào blacklist
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(tokenRevocationService).revoke(captor.capture(), any(Date.class));
         assertThat(captor.getValue()).isNotNull();
+        verify(verifiedTokenCache).invalidate(oldToken);
     }
 }
\ No newline at end of file
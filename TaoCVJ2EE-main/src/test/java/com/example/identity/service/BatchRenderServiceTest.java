@@ -0,0 +1,153 @@
+package com.example.identity.service;
+
+import com.example.identity.entity.CV;
+import com.example.identity.entity.Template;
+import com.example.identity.exception.AppException;
+import com.example.identity.exception.ErrorCode;
+import com.example.identity.repository.CVRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchRenderServiceTest {
+
+    @Mock
+    private CVRepository cvRepository;
+    @Mock
+    private RenderService renderService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ThreadPoolTaskExecutor executor;
+
+    private BatchRenderService batchRenderService;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.initialize();
+        batchRenderService = new BatchRenderService(cvRepository, renderService, objectMapper, executor, 50, 2, 2000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    private CV cv(Long id) {
+        return CV.builder().id(id).template(Template.builder().id(1L).build()).build();
+    }
+
+    private List<JsonNode> lines(StringWriter writer) throws Exception {
+        return Arrays.stream(writer.toString().split("\n"))
+                .map(line -> {
+                    try {
+                        return objectMapper.readTree(line);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+    }
+
+    @Test
+    @DisplayName("renderBatch - Load CV trong 1 query, ghi mỗi CV một dòng NDJSON")
+    void renderBatch_writesOneLinePerCV() throws Exception {
+        when(cvRepository.findAllForRenderByIdIn(List.of(1L, 2L, 3L))).thenReturn(List.of(cv(1L), cv(2L)));
+        when(renderService.renderCV(any(CV.class))).thenAnswer(inv -> "<html>" + inv.<CV>getArgument(0).getId() + "</html>");
+
+        StringWriter writer = new StringWriter();
+        batchRenderService.renderBatch(List.of(1L, 2L, 2L, 3L), writer);
+
+        List<JsonNode> lines = lines(writer);
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0).get("id").asLong()).isEqualTo(3L);
+        assertThat(lines.get(0).get("error").asText()).isEqualTo(ErrorCode.CV_NOT_FOUND.getMessage());
+        assertThat(lines.subList(1, 3)).extracting(line -> line.get("html").asText())
+                .containsExactlyInAnyOrder("<html>1</html>", "<html>2</html>");
+        verify(cvRepository, times(1)).findAllForRenderByIdIn(anyCollection());
+    }
+
+    @Test
+    @DisplayName("renderBatch - Template chậm không chặn kết quả của CV khác")
+    void renderBatch_slowRenderDoesNotBlockOthers() throws Exception {
+        CountDownLatch fastWritten = new CountDownLatch(1);
+        when(cvRepository.findAllForRenderByIdIn(List.of(1L, 2L))).thenReturn(List.of(cv(1L), cv(2L)));
+        when(renderService.renderCV(any(CV.class))).thenAnswer(inv -> {
+            if (inv.<CV>getArgument(0).getId() == 1L) {
+                fastWritten.await();
+                return "<html>slow</html>";
+            }
+            return "<html>fast</html>";
+        });
+
+        StringWriter writer = new StringWriter() {
+            @Override
+            public void flush() {
+                fastWritten.countDown();
+            }
+        };
+        batchRenderService.renderBatch(List.of(1L, 2L), writer);
+
+        List<JsonNode> lines = lines(writer);
+        assertThat(lines).extracting(line -> line.get("html").asText())
+                .containsExactly("<html>fast</html>", "<html>slow</html>");
+    }
+
+    @Test
+    @DisplayName("renderBatch - Render lỗi hoặc quá hạn trả về dòng error")
+    void renderBatch_failureAndTimeout() throws Exception {
+        batchRenderService = new BatchRenderService(cvRepository, renderService, objectMapper, executor, 50, 2, 200);
+        when(cvRepository.findAllForRenderByIdIn(List.of(1L, 2L))).thenReturn(List.of(cv(1L), cv(2L)));
+        when(renderService.renderCV(any(CV.class))).thenAnswer(inv -> {
+            if (inv.<CV>getArgument(0).getId() == 1L) {
+                throw new IllegalStateException("boom");
+            }
+            Thread.sleep(5_000);
+            return "<html>never</html>";
+        });
+
+        StringWriter writer = new StringWriter();
+        batchRenderService.renderBatch(List.of(1L, 2L), writer);
+
+        List<JsonNode> lines = lines(writer);
+        assertThat(lines).extracting(line -> line.get("id").asLong() + ":" + line.get("error").asText())
+                .containsExactly("1:" + ErrorCode.TEMPLATE_RENDER_FAILED.getMessage(), "2:Render timed out");
+    }
+
+    @Test
+    @DisplayName("renderBatch - Batch rỗng hoặc vượt giới hạn bị từ chối")
+    void renderBatch_rejectsInvalidSize() {
+        batchRenderService = new BatchRenderService(cvRepository, renderService, objectMapper, executor, 2, 2, 2000);
+
+        AppException empty = assertThrows(AppException.class,
+                () -> batchRenderService.renderBatch(List.of(), new StringWriter()));
+        AppException tooMany = assertThrows(AppException.class,
+                () -> batchRenderService.renderBatch(List.of(1L, 2L, 3L), new StringWriter()));
+
+        assertEquals(ErrorCode.BATCH_RENDER_INVALID, empty.getErrorCode());
+        assertEquals(ErrorCode.BATCH_RENDER_INVALID, tooMany.getErrorCode());
+        verifyNoInteractions(cvRepository);
+    }
+}
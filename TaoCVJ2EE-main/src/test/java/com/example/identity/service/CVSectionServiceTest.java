@@ -17,16 +17,24 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +46,12 @@ public class CVSectionServiceTest {
     private CVSectionMapper cvSectionMapper;
     @Mock
     private CVRepository cvRepository;
+    @Mock
+    private RenderService renderService;
+    @Mock
+    private SecurityContext securityContext;
+    @Mock
+    private Authentication authentication;
 
 
     @InjectMocks
@@ -85,9 +99,9 @@ public class CVSectionServiceTest {
     @DisplayName("Test getListSectionByCVIdSorted - Lấy danh sách section đã sắp xếp")
     void getListSectionByCVIdSorted_success() {
         // Given
-        // Ra lệnh: Khi repo.findAll... được gọi -> trả về list (ĐÃ SỬA THÀNH MUTABLE)
-        when(cvSectionRepository.findAllByCvId(cvId))
-                .thenReturn(new ArrayList<>(List.of(section2, section1)));
+        // Ra lệnh: Khi repo.findAll... được gọi -> trả về list đã sắp xếp theo orderIndex ở DB
+        when(cvSectionRepository.findAllByCvIdOrderByOrderIndexAsc(cvId))
+                .thenReturn(new ArrayList<>(List.of(section1, section2)));
 
         // When
         List<CVSection> result = cvSectionService.getListSectionByCVIdSorted(cvId); //
@@ -101,45 +115,77 @@ public class CVSectionServiceTest {
     }
 
     @Test
-    @DisplayName("Test reorderCVSection - Sắp xếp lại thành công")
+    @DisplayName("Test reorderCVSection - Sắp xếp lại bằng 1 câu UPDATE, xóa cache render, trả về sections như trước")
+    @SuppressWarnings("unchecked")
     void reorderCVSection_success() {
-        // Given
-        // Ra lệnh: Khi repo.findById(cvId) -> trả về CV
-        when(cvRepository.findById(cvId)).thenReturn(Optional.of(cv));
-
-        // Yêu cầu sắp xếp: section 1 -> index 2, section 2 -> index 1
-        List<CVSectionRequestReorder> reorderRequest = List.of(
-                new CVSectionRequestReorder(section1Id, 2),
-                new CVSectionRequestReorder(section2Id, 1)
-        );
-
-        // When
-        List<CVSection> result = cvSectionService.reorderCVSection(cvId, reorderRequest);
-
-        // Then
-        // Kiểm tra xem hàm saveAll đã được gọi
-        verify(cvSectionRepository).saveAll(any(List.class));
-
-        // Kiểm tra xem index của các object thật đã bị thay đổi
-        assertThat(section1.getOrderIndex()).isEqualTo(2);
-        assertThat(section2.getOrderIndex()).isEqualTo(1);
-
-        // Kiểm tra xem list trả về đã được sắp xếp
-        assertThat(result.get(0).getId()).isEqualTo(section2Id);
-        assertThat(result.get(1).getId()).isEqualTo(section1Id);
+        try (MockedStatic<SecurityContextHolder> mockedContext = Mockito.mockStatic(SecurityContextHolder.class)) {
+            // Given
+            mockedContext.when(SecurityContextHolder::getContext).thenReturn(securityContext);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("testuser");
+            when(cvRepository.existsByIdAndUserUsername(cvId, "testuser")).thenReturn(true);
+            section1.setOrderIndex(2);
+            section2.setOrderIndex(1);
+            List<CVSection> reordered = List.of(section2, section1);
+            when(cvSectionRepository.findAllByCvIdOrderByOrderIndexAsc(cvId)).thenReturn(reordered);
+
+            // Yêu cầu sắp xếp: section 1 -> index 2, section 2 -> index 1
+            List<CVSectionRequestReorder> reorderRequest = List.of(
+                    new CVSectionRequestReorder(section1Id, 2),
+                    new CVSectionRequestReorder(section2Id, 1)
+            );
+
+            // When
+            List<CVSection> result = cvSectionService.reorderCVSection(cvId, reorderRequest);
+
+            // Then
+            ArgumentCaptor<Map<Long, Integer>> captor = ArgumentCaptor.forClass(Map.class);
+            verify(cvSectionRepository).updateOrderIndexes(eq(cvId), captor.capture());
+            assertThat(captor.getValue()).containsExactly(entry(section1Id, 2), entry(section2Id, 1));
+
+            // Không load entity để ghi, không saveAll
+            verify(cvSectionRepository, never()).saveAll(any());
+            verify(cvRepository, never()).findById(any());
+            verify(renderService).invalidateCVCache(cvId);
+            assertThat(result).isSameAs(reordered);
+        }
     }
 
     @Test
-    @DisplayName("Test reorderCVSection - Lỗi CV_NOT_FOUND")
-    void reorderCVSection_cvNotFound() {
+    @DisplayName("Test reorderCVSection - Thiếu id hoặc orderIndex thì lỗi 400 SECTION_REORDER_INVALID, không ghi DB")
+    void reorderCVSection_missingIdOrOrderIndex() {
         // Given
-        when(cvRepository.findById(cvId)).thenReturn(Optional.empty());
-        List<CVSectionRequestReorder> reorderRequest = List.of();
+        List<CVSectionRequestReorder> missingId = List.of(new CVSectionRequestReorder(null, 1));
+        List<CVSectionRequestReorder> missingOrder = List.of(new CVSectionRequestReorder(section1Id, null));
 
         // When  Then
-        assertThatThrownBy(() -> cvSectionService.reorderCVSection(cvId, reorderRequest))
-                .isInstanceOf(AppException.class)
-                .hasFieldOrPropertyWithValue("errorCode", ErrorCode.CV_NOT_FOUND);
+        for (List<CVSectionRequestReorder> request : List.of(missingId, missingOrder)) {
+            assertThatThrownBy(() -> cvSectionService.reorderCVSection(cvId, request))
+                    .isInstanceOf(AppException.class)
+                    .hasFieldOrPropertyWithValue("errorCode", ErrorCode.SECTION_REORDER_INVALID);
+        }
+        verifyNoInteractions(cvRepository, renderService);
+        verify(cvSectionRepository, never()).updateOrderIndexes(any(), any());
+    }
+
+    @Test
+    @DisplayName("Test reorderCVSection - CV không tồn tại hoặc của user khác thì lỗi CV_NOT_FOUND, không ghi DB")
+    void reorderCVSection_cvNotFound() {
+        try (MockedStatic<SecurityContextHolder> mockedContext = Mockito.mockStatic(SecurityContextHolder.class)) {
+            // Given
+            mockedContext.when(SecurityContextHolder::getContext).thenReturn(securityContext);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("otheruser");
+            when(cvRepository.existsByIdAndUserUsername(cvId, "otheruser")).thenReturn(false);
+            List<CVSectionRequestReorder> reorderRequest = List.of(new CVSectionRequestReorder(section1Id, 2));
+
+            // When  Then
+            assertThatThrownBy(() -> cvSectionService.reorderCVSection(cvId, reorderRequest))
+                    .isInstanceOf(AppException.class)
+                    .hasFieldOrPropertyWithValue("errorCode", ErrorCode.CV_NOT_FOUND);
+            verify(cvSectionRepository, never()).updateOrderIndexes(any(), any());
+            verifyNoInteractions(renderService);
+        }
     }
 
     @Test
@@ -164,6 +210,7 @@ public class CVSectionServiceTest {
         verify(cvSectionRepository).save(captor.capture());
 
         assertThat(captor.getValue().getCv().getId()).isEqualTo(cvId);
+        verify(renderService).invalidateCVCache(cvId);
     }
 
     @Test
@@ -185,10 +232,53 @@ public class CVSectionServiceTest {
         // Then
         verify(cvSectionMapper).updateSection(section1, updateRequest);
         verify(cvSectionRepository).save(section1);
+        // Section bị ẩn -> HTML cache của CV phải bỏ
+        verify(renderService).invalidateCVCache(cvId);
 
         assertThat(result).isNotNull();
     }
 
+    @Test
+    @DisplayName("Test patchSectionData - Merge patch lên sectionData, null thì xóa field")
+    void patchSectionData_success() throws Exception {
+        try (MockedStatic<SecurityContextHolder> mockedContext = Mockito.mockStatic(SecurityContextHolder.class)) {
+            // Given
+            mockedContext.when(SecurityContextHolder::getContext).thenReturn(securityContext);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("testuser");
+            ObjectMapper objectMapper = new ObjectMapper();
+            when(cvSectionRepository.findByIdAndCvUserUsername(section1Id, "testuser")).thenReturn(Optional.of(section1));
+            when(cvSectionRepository.save(section1)).thenReturn(section1);
+
+            // When
+            CVSection result = cvSectionService.patchSectionData(section1Id,
+                    objectMapper.readTree("{\"name\":null,\"phone\":\"0123\"}"));
+
+            // Then
+            assertThat(result.getSectionData()).isEqualTo(objectMapper.createObjectNode().put("phone", "0123"));
+            verifyNoInteractions(cvSectionMapper);
+        }
+    }
+
+    @Test
+    @DisplayName("Test patchSectionData - Section thuộc CV của user khác thì lỗi SECTION_NOT_FOUND, không ghi gì")
+    void patchSectionData_notOwner() {
+        try (MockedStatic<SecurityContextHolder> mockedContext = Mockito.mockStatic(SecurityContextHolder.class)) {
+            // Given
+            mockedContext.when(SecurityContextHolder::getContext).thenReturn(securityContext);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("otheruser");
+            when(cvSectionRepository.findByIdAndCvUserUsername(section1Id, "otheruser")).thenReturn(Optional.empty());
+
+            // When  Then
+            assertThatThrownBy(() -> cvSectionService.patchSectionData(section1Id, new ObjectMapper().createObjectNode()))
+                    .isInstanceOf(AppException.class)
+                    .hasFieldOrPropertyWithValue("errorCode", ErrorCode.SECTION_NOT_FOUND);
+            verify(cvSectionRepository, never()).findById(any());
+            verify(cvSectionRepository, never()).save(any());
+        }
+    }
+
     @Test
     @DisplayName("Test updateCVSection - Lỗi SECTION_NOT_FOUND")
     void updateCVSection_notFound() {
@@ -208,6 +298,7 @@ public class CVSectionServiceTest {
     @DisplayName("Test deleteCVSection - Xóa thành công")
     void deleteCVSection_success() {
         // Given
+        when(cvSectionRepository.findCvIdById(section1Id)).thenReturn(Optional.of(cvId));
         doNothing().when(cvSectionRepository).deleteById(section1Id);
 
         // When
@@ -216,5 +307,6 @@ public class CVSectionServiceTest {
         // Then
         assertThat(result).isTrue();
         verify(cvSectionRepository).deleteById(section1Id);
+        verify(renderService).invalidateCVCache(cvId);
     }
-}
\ No newline at end of file
+}
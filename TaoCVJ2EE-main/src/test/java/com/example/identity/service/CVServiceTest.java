@@ -2,6 +2,8 @@ package com.example.identity.service;
 
 import com.example.identity.dto.request.CVRequest;
 import com.example.identity.dto.response.CVResponse;
+import com.example.identity.dto.response.CVSummaryResponse;
+import com.example.identity.dto.response.CursorPageResponse;
 import com.example.identity.entity.CV;
 import com.example.identity.entity.Template;
 import com.example.identity.entity.User;
@@ -21,6 +23,9 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -32,6 +37,7 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -110,18 +116,22 @@ public class CVServiceTest {
             when(securityContext.getAuthentication()).thenReturn(authentication);
             when(authentication.getName()).thenReturn(testUsername);
 
-            // Ra lệnh: Khi repo tìm CV theo username -> trả về 1 list
-            when(cvRepository.findAllByUserUsername(testUsername)).thenReturn(List.of(cv));
-            // Ra lệnh: Khi mapper chuyển đổi -> trả về response
-            when(cvMapper.toCVResponse(cv)).thenReturn(cvResponse);
+            // Ra lệnh: Khi repo lấy danh sách rút gọn theo username -> trả về 1 list
+            CVRepository.CVSummaryView summary = mock(CVRepository.CVSummaryView.class);
+            when(summary.getId()).thenReturn(cvId);
+            when(cvRepository.findByUserUsernameOrderByUpdatedAtDescIdDesc(eq(testUsername), any(ScrollPosition.class), eq(Limit.of(20))))
+                    .thenReturn(Window.from(List.of(summary), index -> ScrollPosition.keyset()));
 
             // When
-            List<CVResponse> result = cvService.getAllMyCV();
+            CursorPageResponse<CVSummaryResponse> result = cvService.getAllMyCV(null, null);
 
             // Then
             assertThat(result).isNotNull();
-            assertThat(result).hasSize(1);
-            assertThat(result.get(0).getId()).isEqualTo(cvId);
+            assertThat(result.getItems()).hasSize(1);
+            assertThat(result.getItems().get(0).getId()).isEqualTo(cvId);
+            assertThat(result.isHasNext()).isFalse();
+            assertThat(result.getNextCursor()).isNull();
+            verifyNoInteractions(cvMapper);
         }
     }
 
@@ -135,7 +145,7 @@ public class CVServiceTest {
             when(securityContext.getAuthentication()).thenReturn(authentication);
             when(authentication.getName()).thenReturn(testUsername);
 
-            when(cvRepository.findAllByUserUsername(testUsername)).thenReturn(List.of(cv));
+            when(cvRepository.findByIdAndUserUsername(cvId, testUsername)).thenReturn(Optional.of(cv));
             when(cvMapper.toCVResponse(cv)).thenReturn(cvResponse);
 
             // When
@@ -158,8 +168,8 @@ public class CVServiceTest {
             when(securityContext.getAuthentication()).thenReturn(authentication);
             when(authentication.getName()).thenReturn(testUsername);
 
-            when(cvRepository.findAllByUserUsername(testUsername)).thenReturn(List.of(cv));
-            when(cvMapper.toCVResponse(cv)).thenReturn(cvResponse);
+            // CV không tồn tại hoặc thuộc user khác đều trả về rỗng
+            when(cvRepository.findByIdAndUserUsername(nonExistentId, testUsername)).thenReturn(Optional.empty());
 
             // When & Then
             assertThatThrownBy(() -> cvService.getCVById(nonExistentId))
@@ -217,6 +227,50 @@ public class CVServiceTest {
         verify(cvMapper).updateCV(cv, cvRequest);
     }
 
+    @Test
+    @DisplayName("Test patchCVData - Merge patch chỉ sửa field được gửi lên")
+    void patchCVData_success() {
+        try (MockedStatic<SecurityContextHolder> mockedContext = Mockito.mockStatic(SecurityContextHolder.class)) {
+            // Given
+            mockedContext.when(SecurityContextHolder::getContext).thenReturn(securityContext);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn(testUsername);
+            ObjectMapper objectMapper = new ObjectMapper();
+            cv.setUpdatedAt(LocalDateTime.of(2024, 1, 1, 0, 0));
+            when(cvRepository.findByIdAndUserUsername(cvId, testUsername)).thenReturn(Optional.of(cv));
+            when(cvRepository.saveAndFlush(cv)).thenReturn(cv);
+
+            // When
+            LocalDateTime result = cvService.patchCVData(cvId, objectMapper.createObjectNode().put("summary", "Java dev"));
+
+            // Then
+            assertThat(result).isEqualTo(LocalDateTime.of(2024, 1, 1, 0, 0));
+            assertThat(cv.getCvData()).isEqualTo(objectMapper.createObjectNode()
+                    .put("title", "Developer")
+                    .put("summary", "Java dev"));
+            verifyNoInteractions(cvMapper);
+            verify(cvRepository, never()).findById(any());
+        }
+    }
+
+    @Test
+    @DisplayName("Test patchCustomization - CV không tồn tại hoặc của user khác thì lỗi CV_NOT_FOUND")
+    void patchCustomization_cvNotFound() {
+        try (MockedStatic<SecurityContextHolder> mockedContext = Mockito.mockStatic(SecurityContextHolder.class)) {
+            // Given
+            mockedContext.when(SecurityContextHolder::getContext).thenReturn(securityContext);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("otheruser");
+            when(cvRepository.findByIdAndUserUsername(cvId, "otheruser")).thenReturn(Optional.empty());
+
+            // When  Then
+            assertThatThrownBy(() -> cvService.patchCustomization(cvId, new ObjectMapper().createObjectNode()))
+                    .isInstanceOf(AppException.class)
+                    .hasFieldOrPropertyWithValue("errorCode", ErrorCode.CV_NOT_FOUND);
+            verify(cvRepository, never()).saveAndFlush(any());
+        }
+    }
+
     @Test
     @DisplayName("Test deleteCV - Xóa CV thành công")
     void deleteCV_success() {
@@ -233,20 +287,44 @@ public class CVServiceTest {
     @Test
     @DisplayName("Test duplicateCV - Nhân bản CV thành công")
     void duplicateCV_success() {
-        // Given
-        CV newCV = new CV();
-        CVResponse newCVResponse = CVResponse.builder().id(2L).name("Test CV").build();
+        try (MockedStatic<SecurityContextHolder> mockedContext = Mockito.mockStatic(SecurityContextHolder.class)) {
+            // Given
+            mockedContext.when(SecurityContextHolder::getContext).thenReturn(securityContext);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn(testUsername);
+            CV copy = CV.builder().id(2L).name("Test CV").build();
+            when(cvRepository.duplicate(cvId, testUsername)).thenReturn(2L);
+            when(cvRepository.findWithSectionsById(2L)).thenReturn(Optional.of(copy));
+            when(cvMapper.toCVResponse(copy)).thenReturn(CVResponse.builder().id(2L).name("Test CV").build());
 
-        when(cvRepository.findById(cvId)).thenReturn(Optional.of(cv));
-        when(cvRepository.save(any(CV.class))).thenReturn(newCV);
-        when(cvMapper.toCVResponse(newCV)).thenReturn(newCVResponse);
+            // When
+            CVResponse result = cvService.duplicateCV(cvId);
 
-        // When
-        CVResponse result = cvService.duplicateCV(cvId);
+            // Then
+            assertThat(result.getId()).isEqualTo(2L);
+            assertThat(result.getName()).isEqualTo("Test CV");
+            // Không load CV gốc lên JVM, chỉ đọc CV mới
+            verify(cvRepository, never()).findById(any());
+            verify(cvRepository, never()).findWithSectionsById(cvId);
+            verify(cvRepository, never()).save(any());
+        }
+    }
 
-        // Then
-        assertThat(result).isNotNull();
-        assertThat(result.getId()).isEqualTo(2L);
-        verify(cvMapper).duplicateCV(any(CV.class), eq(cv));
+    @Test
+    @DisplayName("Test duplicateCV - CV không tồn tại hoặc của user khác thì lỗi CV_NOT_FOUND")
+    void duplicateCV_cvNotFound() {
+        try (MockedStatic<SecurityContextHolder> mockedContext = Mockito.mockStatic(SecurityContextHolder.class)) {
+            // Given
+            mockedContext.when(SecurityContextHolder::getContext).thenReturn(securityContext);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("otheruser");
+            when(cvRepository.duplicate(cvId, "otheruser")).thenReturn(null);
+
+            // When  Then
+            assertThatThrownBy(() -> cvService.duplicateCV(cvId))
+                    .isInstanceOf(AppException.class)
+                    .hasFieldOrPropertyWithValue("errorCode", ErrorCode.CV_NOT_FOUND);
+            verify(cvRepository, never()).findWithSectionsById(any());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,227 @@
+package com.example.identity.service;
+
+import com.example.identity.dto.response.ExportJobResponse;
+import com.example.identity.entity.CV;
+import com.example.identity.entity.Template;
+import com.example.identity.enums.ExportFormat;
+import com.example.identity.enums.ExportJobStatus;
+import com.example.identity.exception.AppException;
+import com.example.identity.exception.ErrorCode;
+import com.example.identity.repository.CVRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExportJobServiceTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+    @Mock
+    private CVRepository cvRepository;
+    @Mock
+    private TemplateRenderingService templateRenderingService;
+
+    @TempDir
+    Path cacheDir;
+
+    private ExportJobStore jobStore;
+
+    private ExportJobService exportJobService;
+
+    private CV cv;
+
+    @BeforeEach
+    void setUp() {
+        loginAs("testuser");
+        // Redis không kết nối được -> store dùng fallback trong JVM
+        lenient().when(redisTemplate.opsForValue()).thenThrow(new RedisConnectionFailureException("down"));
+        lenient().when(redisTemplate.opsForList()).thenThrow(new RedisConnectionFailureException("down"));
+        jobStore = spy(new ExportJobStore(redisTemplate, new ObjectMapper().registerModule(new JavaTimeModule()), 600_000, 1_000_000));
+        PdfRenderService pdfRenderService = new PdfRenderService(cacheDir.toString(), cacheDir.toString(), "",
+                1, 1000, Long.MAX_VALUE, Long.MAX_VALUE);
+        exportJobService = new ExportJobService(jobStore, cvRepository, templateRenderingService, pdfRenderService, 0);
+
+        cv = CV.builder()
+                .id(1L)
+                .template(Template.builder().id(2L).version(1).build())
+                .cvData(new ObjectMapper().createObjectNode().put("name", "A"))
+                .build();
+        lenient().when(cvRepository.findForRenderById(1L)).thenReturn(Optional.of(cv));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void loginAs(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(username, null));
+    }
+
+    @Test
+    @DisplayName("submit - CV không đổi thì trả về job đã có thay vì tạo job mới")
+    void submit_deduplicatesUnchangedContent() throws Exception {
+        ExportJobResponse first = exportJobService.submit(1L, ExportFormat.PDF);
+        ExportJobResponse second = exportJobService.submit(1L, ExportFormat.PDF);
+
+        assertThat(second.getJobId()).isEqualTo(first.getJobId());
+        assertThat(first.getStatus()).isEqualTo(ExportJobStatus.QUEUED);
+        assertThat(jobStore.poll(Duration.ofMillis(10))).isEqualTo(first.getJobId());
+        assertThat(jobStore.poll(Duration.ofMillis(10))).isNull();
+
+        // Nội dung đổi thì tạo job mới
+        cv.getCvData().withObject("").put("name", "B");
+        assertThat(exportJobService.submit(1L, ExportFormat.PDF).getJobId()).isNotEqualTo(first.getJobId());
+    }
+
+    @Test
+    @DisplayName("getJob/writeArtifact - Job của user khác báo EXPORT_JOB_NOT_FOUND, dedupe không trả job của user khác")
+    void jobsAreScopedToSubmitter() {
+        ExportJobResponse job = exportJobService.submit(1L, ExportFormat.PDF);
+        assertThat(job.getUsername()).isEqualTo("testuser");
+        jobStore.save(job.toBuilder().status(ExportJobStatus.DONE).artifactHash("a".repeat(64)).build());
+
+        loginAs("otheruser");
+
+        AppException status = assertThrows(AppException.class, () -> exportJobService.getJob(job.getJobId()));
+        assertEquals(ErrorCode.EXPORT_JOB_NOT_FOUND, status.getErrorCode());
+        AppException download = assertThrows(AppException.class,
+                () -> exportJobService.writeArtifact(job.getJobId(), new ByteArrayOutputStream()));
+        assertEquals(ErrorCode.EXPORT_JOB_NOT_FOUND, download.getErrorCode());
+        ExportJobResponse own = exportJobService.submit(1L, ExportFormat.PDF);
+        assertThat(own.getJobId()).isNotEqualTo(job.getJobId());
+        assertThat(own.getUsername()).isEqualTo("otheruser");
+    }
+
+    @Test
+    @DisplayName("process - Render PDF, job DONE lưu hash PDF; tải về stream thẳng file trong cache, không đọc store")
+    void process_rendersArtifact() throws Exception {
+        Path pdf = Files.writeString(cacheDir.resolve("a".repeat(64) + ".pdf"), "%PDF-1.4");
+        when(templateRenderingService.exportCVAsPdf(any(CV.class), any(Template.class))).thenReturn(pdf);
+        ExportJobResponse job = exportJobService.submit(1L, ExportFormat.PDF);
+
+        exportJobService.process(jobStore.poll(Duration.ofMillis(10)));
+
+        ExportJobResponse done = exportJobService.getJob(job.getJobId());
+        assertThat(done.getStatus()).isEqualTo(ExportJobStatus.DONE);
+        assertThat(done.getDownloadUrl()).isEqualTo("/cvs/export/jobs/" + job.getJobId() + "/artifact");
+        assertThat(done.getArtifactHash()).isEqualTo("a".repeat(64));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exportJobService.writeArtifact(job.getJobId(), output);
+        assertThat(output.toString()).isEqualTo("%PDF-1.4");
+        verify(jobStore, never()).findArtifact(anyString());
+    }
+
+    @Test
+    @DisplayName("writeArtifact - Node không có file trong cache PDF thì đọc bản copy trong store")
+    void writeArtifact_notCachedOnThisNode_readsStore() {
+        ExportJobResponse done = ExportJobResponse.builder().username("testuser").jobId("job-1").cvId(1L).format(ExportFormat.PDF)
+                .status(ExportJobStatus.DONE).artifactHash("b".repeat(64)).build();
+        jobStore.save(done);
+        doReturn(Optional.of("%PDF-1.4".getBytes())).when(jobStore).findArtifact("job-1");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exportJobService.writeArtifact("job-1", output);
+
+        assertThat(output.toString()).isEqualTo("%PDF-1.4");
+    }
+
+    @Test
+    @DisplayName("process - Render lỗi thì job FAILED và có thể submit lại")
+    void process_failedJobCanBeResubmitted() throws Exception {
+        when(templateRenderingService.exportCVAsPdf(any(CV.class), any(Template.class)))
+                .thenThrow(new AppException(ErrorCode.TEMPLATE_RENDER_FAILED));
+        ExportJobResponse job = exportJobService.submit(1L, ExportFormat.PDF);
+
+        exportJobService.process(jobStore.poll(Duration.ofMillis(10)));
+
+        ExportJobResponse failed = exportJobService.getJob(job.getJobId());
+        assertThat(failed.getStatus()).isEqualTo(ExportJobStatus.FAILED);
+        assertThat(failed.getError()).isEqualTo(ErrorCode.TEMPLATE_RENDER_FAILED.getMessage());
+        AppException notReady = assertThrows(AppException.class,
+                () -> exportJobService.writeArtifact(job.getJobId(), new ByteArrayOutputStream()));
+        assertEquals(ErrorCode.EXPORT_JOB_NOT_READY, notReady.getErrorCode());
+        assertThat(exportJobService.submit(1L, ExportFormat.PDF).getJobId()).isNotEqualTo(job.getJobId());
+    }
+
+    @Test
+    @DisplayName("submit - Job cũ lỗi nhưng request khác đã thay dedupe key trước thì trả về job của request đó")
+    void submit_reclaimLost_returnsWinningJob() {
+        ExportJobResponse failed = ExportJobResponse.builder().username("testuser").jobId("old").cvId(1L)
+                .format(ExportFormat.PDF).status(ExportJobStatus.FAILED).build();
+        ExportJobResponse winner = ExportJobResponse.builder().username("testuser").jobId("winner").cvId(1L)
+                .format(ExportFormat.PDF).status(ExportJobStatus.QUEUED).build();
+        jobStore.save(failed);
+        jobStore.save(winner);
+        doReturn("old", "winner").when(jobStore).claimDedupeKey(anyString(), anyString());
+
+        ExportJobResponse result = exportJobService.submit(1L, ExportFormat.PDF);
+
+        assertThat(result.getJobId()).isEqualTo("winner");
+        verify(jobStore).releaseDedupeKey(anyString(), eq("old"));
+        verify(jobStore, never()).enqueue(anyString());
+        // Job tạm của request thua bị xóa
+        ArgumentCaptor<String> deleted = ArgumentCaptor.forClass(String.class);
+        verify(jobStore).delete(deleted.capture());
+        assertThat(jobStore.find(deleted.getValue())).isEmpty();
+    }
+
+    @Test
+    @DisplayName("requeueAbandonedJobs - Job RUNNING của node đã chết được đưa lại vào queue với trạng thái QUEUED")
+    void requeueAbandonedJobs_requeuesRunningJob() throws Exception {
+        ExportJobResponse running = ExportJobResponse.builder().username("testuser").jobId("job-1").cvId(1L)
+                .format(ExportFormat.PDF).status(ExportJobStatus.RUNNING).build();
+        ExportJobResponse done = ExportJobResponse.builder().username("testuser").jobId("job-2").cvId(1L)
+                .format(ExportFormat.PDF).status(ExportJobStatus.DONE).build();
+        jobStore.save(running);
+        jobStore.save(done);
+        doReturn(List.of("job-1", "job-2", "job-3")).when(jobStore).findAbandoned();
+        doReturn(true).when(jobStore).claimAbandoned("job-1");
+        doReturn(true).when(jobStore).claimAbandoned("job-2");
+        doReturn(false).when(jobStore).claimAbandoned("job-3");
+
+        exportJobService.requeueAbandonedJobs();
+
+        assertThat(exportJobService.getJob("job-1").getStatus()).isEqualTo(ExportJobStatus.QUEUED);
+        assertThat(jobStore.poll(Duration.ofMillis(10))).isEqualTo("job-1");
+        assertThat(jobStore.poll(Duration.ofMillis(10))).isNull();
+    }
+
+    @Test
+    @DisplayName("submit - DOCX chưa hỗ trợ")
+    void submit_docxNotImplemented() {
+        AppException exception = assertThrows(AppException.class,
+                () -> exportJobService.submit(1L, ExportFormat.DOCX));
+
+        assertEquals(ErrorCode.FEATURE_NOT_IMPLEMENTED, exception.getErrorCode());
+        verify(cvRepository, never()).findForRenderById(any());
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.identity.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisListCommands.Direction;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExportJobStoreTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+    @Mock
+    private ListOperations<String, String> listOperations;
+
+    private ExportJobStore jobStore;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisTemplate.opsForList()).thenReturn(listOperations);
+        jobStore = new ExportJobStore(redisTemplate, new ObjectMapper(), 60_000, 1_000_000);
+    }
+
+    @Test
+    @DisplayName("poll - Job chuyển nguyên tử sang list processing kèm lease thay vì bị pop mất")
+    void poll_movesToProcessingWithLease() throws Exception {
+        Duration timeout = Duration.ofSeconds(1);
+        when(listOperations.move(ExportJobStore.QUEUE_KEY, Direction.RIGHT,
+                ExportJobStore.PROCESSING_KEY, Direction.LEFT, timeout)).thenReturn("job-1");
+
+        assertThat(jobStore.poll(timeout)).isEqualTo("job-1");
+
+        verify(valueOperations).set(ExportJobStore.LEASE_PREFIX + "job-1", "1", Duration.ofMillis(60_000));
+        verify(listOperations, never()).rightPop(anyString(), any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("ack - Bỏ job khỏi list processing và xóa lease")
+    void ack_removesFromProcessing() {
+        jobStore.ack("job-1");
+
+        verify(listOperations).remove(ExportJobStore.PROCESSING_KEY, 1, "job-1");
+        verify(redisTemplate).delete(ExportJobStore.LEASE_PREFIX + "job-1");
+    }
+
+    @Test
+    @DisplayName("findAbandoned - Chỉ trả về job trong processing đã hết lease")
+    void findAbandoned_returnsJobsWithoutLease() {
+        when(listOperations.range(ExportJobStore.PROCESSING_KEY, 0, -1)).thenReturn(List.of("job-1", "job-2"));
+        when(redisTemplate.hasKey(ExportJobStore.LEASE_PREFIX + "job-1")).thenReturn(true);
+        when(redisTemplate.hasKey(ExportJobStore.LEASE_PREFIX + "job-2")).thenReturn(false);
+
+        assertThat(jobStore.findAbandoned()).containsExactly("job-2");
+    }
+
+    @Test
+    @DisplayName("claimAbandoned - Node khác đã gỡ job thì không requeue lần nữa")
+    void claimAbandoned_onlyOneNodeWins() {
+        when(listOperations.remove(ExportJobStore.PROCESSING_KEY, 1, "job-1")).thenReturn(1L, 0L);
+
+        assertThat(jobStore.claimAbandoned("job-1")).isTrue();
+        assertThat(jobStore.claimAbandoned("job-1")).isFalse();
+    }
+
+    @Test
+    @DisplayName("saveArtifact - Nội dung PDF lưu trong Redis để node nào cũng đọc lại được")
+    void saveArtifact_roundTripsThroughRedis() {
+        byte[] pdf = "%PDF-1.4".getBytes();
+        ArgumentCaptor<String> stored = ArgumentCaptor.forClass(String.class);
+
+        jobStore.saveArtifact("job-1", pdf);
+
+        verify(valueOperations).set(eq("export:artifact:job-1"), stored.capture(), eq(Duration.ofHours(1)));
+        when(valueOperations.get("export:artifact:job-1")).thenReturn(stored.getValue());
+
+        assertThat(jobStore.findArtifact("job-1")).hasValue(pdf);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.identity.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HeadFlushingWriterTest {
+
+    @Test
+    @DisplayName("Flush một lần ngay khi </head> được ghi, kể cả khi bị cắt giữa 2 lần write")
+    void flushesOnceAfterHeadEnd() throws IOException {
+        CountingWriter target = new CountingWriter();
+        HeadFlushingWriter writer = new HeadFlushingWriter(target);
+
+        writer.write("<html><head><link rel=\"stylesheet\"></he");
+        assertThat(target.flushes).isZero();
+
+        writer.write("ad><body>");
+        assertThat(target.flushes).isEqualTo(1);
+
+        writer.write("<p>x</p></body></html>");
+        assertThat(target.flushes).isEqualTo(1);
+        assertThat(target.toString()).isEqualTo("<html><head><link rel=\"stylesheet\"></head><body><p>x</p></body></html>");
+    }
+
+    private static class CountingWriter extends StringWriter {
+        int flushes;
+
+        @Override
+        public void flush() {
+            flushes++;
+            super.flush();
+        }
+    }
+}
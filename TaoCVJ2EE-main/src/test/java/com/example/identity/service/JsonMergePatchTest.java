@@ -0,0 +1,50 @@
+package com.example.identity.service;
+
+import com.example.identity.mapper.JsonNodeConverter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonMergePatchTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("apply - Ví dụ trong RFC 7396: sửa, xóa, thêm field lồng nhau, thay mảng")
+    void apply_rfcExample() throws Exception {
+        JsonNode target = objectMapper.readTree("""
+                {"title":"Goodbye!","author":{"givenName":"John","familyName":"Doe"},"tags":["example","sample"],"content":"This will be unchanged"}
+                """);
+        JsonNode patch = objectMapper.readTree("""
+                {"title":"Hello!","phoneNumber":"+01-123-456-7890","author":{"familyName":null},"tags":["example"]}
+                """);
+
+        JsonNode result = JsonMergePatch.apply(target, patch);
+
+        assertThat(result).isEqualTo(objectMapper.readTree("""
+                {"title":"Hello!","author":{"givenName":"John"},"tags":["example"],"content":"This will be unchanged","phoneNumber":"+01-123-456-7890"}
+                """));
+    }
+
+    @Test
+    @DisplayName("apply - Patch không phải object thì thay thế toàn bộ, target null thì tạo object mới")
+    void apply_replaceAndNullTarget() throws Exception {
+        assertThat(JsonMergePatch.apply(objectMapper.readTree("{\"a\":1}"), objectMapper.readTree("[1,2]")))
+                .isEqualTo(objectMapper.readTree("[1,2]"));
+        assertThat(JsonMergePatch.apply(null, objectMapper.readTree("{\"a\":{\"b\":null,\"c\":1}}")))
+                .isEqualTo(objectMapper.readTree("{\"a\":{\"c\":1}}"));
+    }
+
+    @Test
+    @DisplayName("apply - Áp được lên JsonNode đọc từ DB (LazyJsonNode)")
+    void apply_lazyTarget() throws Exception {
+        JsonNode fromDb = new JsonNodeConverter().convertToEntityAttribute("{\"name\":\"John\",\"email\":\"a@b.c\"}");
+
+        JsonNode result = JsonMergePatch.apply(fromDb, objectMapper.readTree("{\"email\":null}"));
+
+        assertThat(result).isEqualTo(objectMapper.readTree("{\"name\":\"John\"}"));
+    }
+}
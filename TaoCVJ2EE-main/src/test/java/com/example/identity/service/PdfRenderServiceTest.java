@@ -0,0 +1,108 @@
+package com.example.identity.service;
+
+import com.example.identity.exception.AppException;
+import com.example.identity.exception.ErrorCode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PdfRenderServiceTest {
+
+    private static final String HTML = "<!DOCTYPE html><html><head><title>CV</title></head>"
+            + "<body><h1>Nguyen Van A</h1><p>Java Developer<br></p></body></html>";
+
+    private static final String OTHER_HTML = "<!DOCTYPE html><html><head><title>CV</title></head>"
+            + "<body><h1>Tran Thi B</h1><p>Tester</p></body></html>";
+
+    @TempDir
+    Path cacheDir;
+
+    private PdfRenderService newService(int maxConcurrent, long acquireTimeoutMs, long maxBytes, long maxAgeMs) {
+        return new PdfRenderService(cacheDir.toString(), cacheDir.toString(), "",
+                maxConcurrent, acquireTimeoutMs, maxBytes, maxAgeMs);
+    }
+
+    private static void setLastUsed(Path file, long millis) throws Exception {
+        FileTime time = FileTime.fromMillis(millis);
+        Files.getFileAttributeView(file, BasicFileAttributeView.class).setTimes(time, time, null);
+    }
+
+    @Test
+    @DisplayName("renderToCache - Render HTML5 thành PDF và cache theo hash nội dung")
+    void renderToCache_rendersAndCaches() throws Exception {
+        PdfRenderService pdfRenderService = newService(2, 1000, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        Path first = pdfRenderService.renderToCache(HTML);
+        long renderedAt = Files.getLastModifiedTime(first).toMillis();
+        Path second = pdfRenderService.renderToCache(HTML);
+
+        String hash = PdfRenderService.contentHash(HTML);
+        assertThat(first).isEqualTo(cacheDir.resolve(hash + ".pdf"));
+        assertThat(second).isEqualTo(first);
+        assertThat(new String(Files.readAllBytes(first), 0, 5, StandardCharsets.US_ASCII)).isEqualTo("%PDF-");
+        assertThat(Files.getLastModifiedTime(first).toMillis()).isEqualTo(renderedAt);
+        assertThat(pdfRenderService.findCached(hash)).contains(first);
+        assertThat(pdfRenderService.findCached("../" + hash)).isEmpty();
+        try (var files = Files.list(cacheDir)) {
+            assertThat(files).containsExactly(first);
+        }
+    }
+
+    @Test
+    @DisplayName("renderToCache - Hết permit render thì báo bận thay vì xếp hàng vô hạn")
+    void renderToCache_busyWhenNoPermit() {
+        PdfRenderService pdfRenderService = newService(0, 10, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        AppException exception = assertThrows(AppException.class,
+                () -> pdfRenderService.renderToCache(HTML));
+
+        assertEquals(ErrorCode.PDF_EXPORT_BUSY, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("evictCache - Vượt dung lượng thì xóa PDF lâu không dùng nhất, PDF vừa được đọc lại được giữ")
+    void evictCache_overMaxBytes_evictsLeastRecentlyUsed() throws Exception {
+        Path first = newService(2, 1000, Long.MAX_VALUE, Long.MAX_VALUE).renderToCache(HTML);
+        Path second = newService(2, 1000, Long.MAX_VALUE, Long.MAX_VALUE).renderToCache(OTHER_HTML);
+        long now = System.currentTimeMillis();
+        setLastUsed(first, now - 20_000);
+        setLastUsed(second, now - 10_000);
+        PdfRenderService pdfRenderService = newService(2, 1000, Files.size(first), Long.MAX_VALUE);
+
+        // Cache hit đánh dấu first là vừa dùng
+        pdfRenderService.renderToCache(HTML);
+        pdfRenderService.evictCache();
+
+        assertThat(first).exists();
+        assertThat(second).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("evictCache - PDF và file tạm quá tuổi bị xóa")
+    void evictCache_olderThanMaxAge_deleted() throws Exception {
+        PdfRenderService pdfRenderService = newService(2, 1000, Long.MAX_VALUE, 60_000);
+        Path stale = pdfRenderService.renderToCache(HTML);
+        Path fresh = pdfRenderService.renderToCache(OTHER_HTML);
+        Path leftover = Files.createTempFile(cacheDir, "pdf", ".tmp");
+        long old = System.currentTimeMillis() - 120_000;
+        setLastUsed(stale, old);
+        setLastUsed(leftover, old);
+
+        pdfRenderService.evictCache();
+
+        assertThat(stale).doesNotExist();
+        assertThat(leftover).doesNotExist();
+        assertThat(fresh).exists();
+        assertThat(pdfRenderService.findCached(PdfRenderService.contentHash(HTML))).isEmpty();
+    }
+}
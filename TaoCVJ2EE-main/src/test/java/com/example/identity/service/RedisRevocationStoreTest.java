@@ -0,0 +1,159 @@
+package com.example.identity.service;
+
+import com.example.identity.entity.InvalidatedToken;
+import com.example.identity.repository.InvalidatedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RedisRevocationStoreTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+    @Mock
+    private InvalidatedTokenRepository tokenRepository;
+
+    private RedisRevocationStore redisRevocationStore;
+
+    @BeforeEach
+    void setUp() {
+        redisRevocationStore = new RedisRevocationStore(redisTemplate, tokenRepository, true);
+        lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+    }
+
+    @Test
+    @DisplayName("save - Key có TTL và index theo expirationTime được ghi trong cùng 1 script")
+    void save_writesKeyWithTtlAndIndex() {
+        Date expirationTime = new Date(1_000_000L);
+
+        redisRevocationStore.save("jti-1", expirationTime, Duration.ofHours(10));
+
+        verify(redisTemplate).execute(RedisRevocationStore.SAVE,
+                List.of(RedisRevocationStore.KEY_PREFIX + "jti-1", RedisRevocationStore.INDEX_KEY),
+                "1000000", String.valueOf(Duration.ofHours(10).toMillis()), "jti-1");
+        verifyNoInteractions(zSetOperations);
+    }
+
+    @Test
+    @DisplayName("save - Token đã hết hạn refresh thì không cần ghi")
+    void save_expiredToken_skipped() {
+        redisRevocationStore.save("jti-1", new Date(), Duration.ofMillis(-1));
+
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("findExpiringAfter - Cắt phần index đã hết hạn rồi đọc phần còn lại, không quét keyspace")
+    void findExpiringAfter_trimsAndReadsIndex() {
+        Date threshold = new Date(500L);
+        when(zSetOperations.rangeByScoreWithScores(RedisRevocationStore.INDEX_KEY, 500d, Double.POSITIVE_INFINITY))
+                .thenReturn(Set.of(new DefaultTypedTuple<>("jti-1", 1_000_000d)));
+
+        Map<String, Date> result = redisRevocationStore.findExpiringAfter(threshold);
+
+        verify(zSetOperations).removeRangeByScore(RedisRevocationStore.INDEX_KEY, Double.NEGATIVE_INFINITY, 500d);
+        verify(redisTemplate, never()).keys(anyString());
+        assertThat(result).containsExactly(Map.entry("jti-1", new Date(1_000_000L)));
+    }
+
+    @Test
+    @DisplayName("contains - Key còn TTL nghĩa là jti còn bị thu hồi")
+    void contains_checksKey() {
+        when(redisTemplate.hasKey(RedisRevocationStore.KEY_PREFIX + "jti-1")).thenReturn(true);
+
+        assertThat(redisRevocationStore.contains("jti-1")).isTrue();
+        assertThat(redisRevocationStore.contains("jti-2")).isFalse();
+    }
+
+    @Test
+    @DisplayName("findExpiringAfter - Lần nạp đầu chép row invalidated_token còn hiệu lực sang Redis rồi xóa khỏi bảng, chỉ một lần")
+    void findExpiringAfter_importsLegacyRowsOnce() {
+        long now = System.currentTimeMillis();
+        Date threshold = new Date(now - Duration.ofHours(9).toMillis());
+        Date expirationTime = new Date(now + Duration.ofHours(1).toMillis());
+        when(tokenRepository.findAllByExpirationTimeAfter(threshold)).thenReturn(List.of(
+                InvalidatedToken.builder().id("legacy-jti").expirationTime(expirationTime).build()));
+
+        redisRevocationStore.findExpiringAfter(threshold);
+        redisRevocationStore.findExpiringAfter(threshold);
+
+        // Chặn tới exp + 9h như token thu hồi sau khi chuyển store
+        verify(redisTemplate).execute(eq(RedisRevocationStore.SAVE),
+                eq(List.of(RedisRevocationStore.KEY_PREFIX + "legacy-jti", RedisRevocationStore.INDEX_KEY)),
+                eq(String.valueOf(expirationTime.getTime())),
+                argThat(ttl -> {
+                    long ttlMillis = Long.parseLong((String) ttl);
+                    return ttlMillis <= Duration.ofHours(10).toMillis() && ttlMillis > Duration.ofHours(9).toMillis();
+                }),
+                eq("legacy-jti"));
+        verify(tokenRepository).deleteAllByIdInBatch(List.of("legacy-jti"));
+        verify(tokenRepository, times(1)).findAllByExpirationTimeAfter(any(Date.class));
+    }
+
+    @Test
+    @DisplayName("findExpiringAfter - Row đã quá hạn refresh không chép, xóa theo lô tới khi hết")
+    void findExpiringAfter_deletesExpiredLegacyRowsInBatches() {
+        Date threshold = new Date();
+        List<String> fullBatch = IntStream.range(0, 1000).mapToObj(i -> "old-" + i).toList();
+        when(tokenRepository.findAllByExpirationTimeAfter(threshold)).thenReturn(List.of());
+        when(tokenRepository.findExpiredIds(threshold, Limit.of(1000)))
+                .thenReturn(fullBatch)
+                .thenReturn(List.of("old-1000"));
+
+        redisRevocationStore.findExpiringAfter(threshold);
+
+        verify(tokenRepository).deleteAllByIdInBatch(fullBatch);
+        verify(tokenRepository).deleteAllByIdInBatch(List.of("old-1000"));
+        verify(tokenRepository, times(2)).findExpiredIds(threshold, Limit.of(1000));
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("contains - Chưa chép xong thì đọc cả bảng invalidated_token, chép xong chỉ đọc Redis")
+    void contains_readsLegacyTableUntilImported() {
+        when(tokenRepository.existsById("legacy-jti")).thenReturn(true);
+
+        assertThat(redisRevocationStore.contains("legacy-jti")).isTrue();
+
+        when(tokenRepository.findAllByExpirationTimeAfter(any(Date.class))).thenReturn(List.of());
+        redisRevocationStore.findExpiringAfter(new Date());
+
+        assertThat(redisRevocationStore.contains("legacy-jti")).isFalse();
+        verify(tokenRepository, times(1)).existsById("legacy-jti");
+    }
+
+    @Test
+    @DisplayName("import-legacy tắt - Không đụng tới bảng invalidated_token")
+    void importLegacyDisabled_neverReadsTable() {
+        redisRevocationStore = new RedisRevocationStore(redisTemplate, tokenRepository, false);
+
+        redisRevocationStore.contains("jti-1");
+        redisRevocationStore.findExpiringAfter(new Date());
+
+        verifyNoInteractions(tokenRepository);
+    }
+}
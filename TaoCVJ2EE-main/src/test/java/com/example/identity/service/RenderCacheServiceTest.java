@@ -0,0 +1,80 @@
+package com.example.identity.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RenderCacheServiceTest {
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    private RenderCacheService renderCacheService;
+
+    private final String key = RenderCacheService.cvKeyPrefix(1L) + "abc";
+
+    @BeforeEach
+    void setUp() {
+        renderCacheService = new RenderCacheService(redisTemplate, 1024 * 1024);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisTemplate.opsForSet()).thenReturn(setOperations);
+    }
+
+    @Test
+    @DisplayName("get - Lần đọc thứ hai được phục vụ từ L1, không gọi Redis")
+    void get_servesRepeatedReadsFromLocalCache() {
+        when(valueOperations.get(key)).thenReturn("<html/>");
+
+        assertThat(renderCacheService.get(key)).isEqualTo("<html/>");
+        assertThat(renderCacheService.get(key)).isEqualTo("<html/>");
+
+        verify(valueOperations, times(1)).get(key);
+    }
+
+    @Test
+    @DisplayName("onMessage - Thông báo invalidate xóa entry của CV khỏi L1")
+    void onMessage_evictsLocalEntriesOfCV() {
+        renderCacheService.put(1L, key, "<html/>");
+
+        renderCacheService.onMessage(new DefaultMessage(
+                RenderCacheService.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "1".getBytes(StandardCharsets.UTF_8)), null);
+        renderCacheService.get(key);
+
+        verify(valueOperations).get(key);
+    }
+
+    @Test
+    @DisplayName("invalidateCV - Xóa theo index set của CV, không dùng KEYS")
+    void invalidateCV_deletesIndexedKeysWithoutScanning() {
+        renderCacheService.put(1L, key, "<html/>");
+        verify(setOperations).add("rendered:index:cv:1", key);
+        when(setOperations.members("rendered:index:cv:1")).thenReturn(Set.of(key));
+
+        renderCacheService.invalidateCV(1L);
+
+        verify(redisTemplate, never()).keys(anyString());
+        verify(redisTemplate).delete(List.of(key, "rendered:index:cv:1"));
+        verify(redisTemplate).convertAndSend(RenderCacheService.INVALIDATION_CHANNEL, "1");
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.identity.service;
+
+import com.example.identity.configuration.ThymeleafContextFactory;
+import com.example.identity.entity.CV;
+import com.example.identity.entity.CVSection;
+import com.example.identity.entity.Template;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.FileTemplateResolver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RenderServiceTest {
+
+    @Mock
+    private SpringTemplateEngine templateEngine;
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+    @Mock
+    private RenderCacheService renderCacheService;
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @Spy
+    private ThymeleafContextFactory contextFactory = new ThymeleafContextFactory(mock(ApplicationContext.class));
+
+    @InjectMocks
+    private RenderService renderService;
+
+    @TempDir
+    Path templatesDir;
+
+    private CV cv;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(renderService, "templatesPath", templatesDir.toString());
+        Template template = Template.builder()
+                .id(5L)
+                .version(2)
+                .compiledFilePath("template_it_modern.html")
+                .templateConfig(objectMapper.createObjectNode().put("color", "blue"))
+                .build();
+
+        CVSection summary = CVSection.builder()
+                .id(1L)
+                .sectionType("summary")
+                .sectionData(objectMapper.createObjectNode().put("text", "Hello"))
+                .orderIndex(0)
+                .isVisible(true)
+                .build();
+        CVSection experience = CVSection.builder()
+                .id(2L)
+                .sectionType("experience")
+                .sectionData(objectMapper.createArrayNode().add("Tech Corp"))
+                .orderIndex(1)
+                .isVisible(true)
+                .build();
+
+        cv = CV.builder()
+                .id(1L)
+                .template(template)
+                .cvData(objectMapper.createObjectNode())
+                .sections(new ArrayList<>(List.of(summary, experience)))
+                .build();
+    }
+
+    @Test
+    @DisplayName("renderCV - Trả về HTML từ cache khi trang đã được render")
+    void renderCV_pageCacheHit() {
+        when(renderCacheService.get(startsWith("rendered:cv:1:"))).thenReturn("<html>cached</html>");
+
+        String html = renderService.renderCV(cv);
+
+        assertThat(html).isEqualTo("<html>cached</html>");
+        verifyNoInteractions(templateEngine);
+    }
+
+    @Test
+    @DisplayName("renderCV - Chỉ render lại fragment của section bị thay đổi")
+    @SuppressWarnings("unchecked")
+    void renderCV_rendersOnlyChangedSectionFragments() throws IOException {
+        Files.writeString(templatesDir.resolve("template_it_modern.html"),
+                "<div th:fragment=\"section-summary\"></div><div th:fragment=\"section-experience\"></div>");
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList("<p>cached summary</p>", null));
+        when(templateEngine.process(eq("template_it_modern"), eq(Set.of("section-experience")), any(Context.class)))
+                .thenReturn("<p>fresh experience</p>");
+        when(templateEngine.process(eq("template_it_modern"), any(Context.class))).thenReturn("<html>page</html>");
+
+        String html = renderService.renderCV(cv);
+
+        assertThat(html).isEqualTo("<html>page</html>");
+        verify(templateEngine, never()).process(anyString(), eq(Set.of("section-summary")), any(Context.class));
+        verify(valueOperations).set(startsWith("rendered:fragment:5:2:experience:"), eq("<p>fresh experience</p>"), any(Duration.class));
+
+        ArgumentCaptor<Context> pageContext = ArgumentCaptor.forClass(Context.class);
+        verify(templateEngine).process(eq("template_it_modern"), pageContext.capture());
+        List<Map<String, Object>> sections = (List<Map<String, Object>>) pageContext.getValue().getVariable("sections");
+        assertThat(sections).extracting(s -> s.get("html"))
+                .containsExactly("<p>cached summary</p>", "<p>fresh experience</p>");
+        verify(renderCacheService).put(eq(1L), startsWith("rendered:cv:1:"), eq("<html>page</html>"));
+    }
+
+    @Test
+    @DisplayName("renderCV - Config đã merge được dùng lại giữa các lần render cùng template version")
+    void renderCV_reusesMergedConfigAcrossRenders() {
+        renderService.registerCacheMetrics();
+        cv.setSections(new ArrayList<>());
+        cv.setCustomization(objectMapper.createObjectNode().put("font", "Roboto"));
+        when(templateEngine.process(eq("template_it_modern"), any(Context.class))).thenReturn("<html>page</html>");
+
+        renderService.renderCV(cv);
+        renderService.renderCV(cv);
+
+        ArgumentCaptor<Context> contexts = ArgumentCaptor.forClass(Context.class);
+        verify(templateEngine, times(2)).process(eq("template_it_modern"), contexts.capture());
+        Object firstConfig = contexts.getAllValues().get(0).getVariable("config");
+        // Template thấy config dưới dạng Map như trước; merged config lấy từ cache ở lần 2 (metric hit bên dưới)
+        assertThat(contexts.getAllValues().get(1).getVariable("config")).isEqualTo(firstConfig);
+        assertThat(firstConfig).isEqualTo(Map.of("color", "blue", "font", "Roboto"));
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "render.merged-config").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("renderCV - Template không khai báo fragment section thì không render fragment, không ghi Redis")
+    void renderCV_templateWithoutFragments_skipsFragmentPasses() throws IOException {
+        Files.writeString(templatesDir.resolve("template_it_modern.html"), "<html><body>no fragments</body></html>");
+        when(templateEngine.process(eq("template_it_modern"), any(Context.class))).thenReturn("<html>page</html>");
+
+        renderService.renderCV(cv);
+
+        verify(templateEngine, never()).process(anyString(), anySet(), any(Context.class));
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    @DisplayName("renderCV - Render thật: section có fragment được render riêng và chèn vào trang")
+    void renderCV_realTemplateWithFragment() throws IOException {
+        Files.writeString(templatesDir.resolve("template_it_modern.html"), """
+                <html><body>\
+                <div th:remove="all"><div th:fragment="section-summary"><p th:text="${section.sectionData.text}"></p></div></div>\
+                <section th:each="s : ${sections}">\
+                <div th:if="${s.containsKey('html')}" th:utext="${s.html}"></div>\
+                <i th:unless="${s.containsKey('html')}" th:text="${s.sectionType}"></i>\
+                </section></body></html>""");
+
+        FileTemplateResolver resolver = new FileTemplateResolver();
+        resolver.setPrefix(templatesDir.toString() + "/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        RenderService realRenderService = new RenderService(engine, objectMapper, redisTemplate, renderCacheService,
+                new ThymeleafContextFactory(new StaticApplicationContext()), meterRegistry);
+        ReflectionTestUtils.setField(realRenderService, "templatesPath", templatesDir.toString());
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList((String) null));
+
+        String html = realRenderService.renderCV(cv);
+
+        assertThat(html).contains("<section><div><div><p>Hello</p></div></div></section>")
+                .contains("<section><i>experience</i></section>");
+        verify(valueOperations).multiGet(argThat(keys -> keys.size() == 1));
+        verify(valueOperations).set(startsWith("rendered:fragment:5:2:summary:"),
+                eq("<div><p>Hello</p></div>"), any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("contentHash - Ẩn section hoặc đổi thứ tự thì hash đổi, thứ tự trong list sections thì không")
+    void contentHash_includesVisibilityAndOrder() {
+        String original = RenderService.contentHash(cv);
+
+        List<CVSection> sections = cv.getSections();
+        cv.setSections(new ArrayList<>(List.of(sections.get(1), sections.get(0))));
+        assertThat(RenderService.contentHash(cv)).isEqualTo(original);
+
+        sections.get(1).setIsVisible(false);
+        String hidden = RenderService.contentHash(cv);
+        assertThat(hidden).isNotEqualTo(original);
+
+        sections.get(1).setIsVisible(true);
+        sections.get(0).setOrderIndex(2);
+        assertThat(RenderService.contentHash(cv)).isNotEqualTo(original).isNotEqualTo(hidden);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.identity.service;
+
+import com.example.identity.entity.Template;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TemplatePreviewServiceTest {
+
+    @Mock
+    private TemplateRenderingService templateRenderingService;
+
+    @InjectMocks
+    private TemplatePreviewService templatePreviewService;
+
+    @TempDir
+    Path storage;
+
+    private Template template;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(templatePreviewService, "templateStoragePath", storage.toString());
+        template = Template.builder().id(3L).version(1).compiledFilePath("template_a.html").build();
+    }
+
+    @Test
+    @DisplayName("getGzippedPreview - Preview đã lưu được phục vụ lại, không render lần hai")
+    void getGzippedPreview_rendersOnlyOnce() {
+        when(templateRenderingService.renderTemplatePreview(template)).thenReturn("<html>preview</html>");
+
+        templatePreviewService.generatePreview(template);
+        byte[] gzipped = templatePreviewService.getGzippedPreview(template);
+
+        assertThat(TemplatePreviewService.gunzip(gzipped)).isEqualTo("<html>preview</html>");
+        verify(templateRenderingService, times(1)).renderTemplatePreview(template);
+    }
+
+    @Test
+    @DisplayName("generatePreview - Version mới thay thế artifact và ETag của version cũ")
+    void generatePreview_replacesOldVersion() {
+        when(templateRenderingService.renderTemplatePreview(template)).thenReturn("<html>v1</html>", "<html>v2</html>");
+
+        templatePreviewService.generatePreview(template);
+        String oldEtag = templatePreviewService.etagOf(template, true);
+        template.setVersion(2);
+        templatePreviewService.generatePreview(template);
+
+        assertThat(templatePreviewService.etagOf(template, true)).isNotEqualTo(oldEtag);
+        assertThat(Files.exists(storage.resolve("previews/template_3_v1.html.gz"))).isFalse();
+        assertThat(TemplatePreviewService.gunzip(templatePreviewService.getGzippedPreview(template)))
+                .isEqualTo("<html>v2</html>");
+    }
+
+    @Test
+    @DisplayName("generatePreview - Request còn giữ version cũ không xóa artifact của version mới")
+    void generatePreview_staleVersion_keepsNewerArtifact() {
+        when(templateRenderingService.renderTemplatePreview(any(Template.class)))
+                .thenReturn("<html>v2</html>", "<html>v1</html>");
+        Template current = Template.builder().id(3L).version(2).compiledFilePath("template_b.html").build();
+
+        templatePreviewService.generatePreview(current);
+        templatePreviewService.generatePreview(template);
+
+        assertThat(Files.exists(storage.resolve("previews/template_3_v2.html.gz"))).isTrue();
+    }
+
+    @Test
+    @DisplayName("etagOf - Bản gzip và bản thường có ETag khác nhau")
+    void etagOf_differsByEncoding() {
+        assertThat(templatePreviewService.etagOf(template, true))
+                .isNotEqualTo(templatePreviewService.etagOf(template, false));
+    }
+
+    @Test
+    @DisplayName("matchesIfNoneMatch - Đọc danh sách ETag, W/ và *")
+    void matchesIfNoneMatch_parsesList() {
+        String etag = templatePreviewService.etagOf(template, false);
+
+        assertThat(TemplatePreviewService.matchesIfNoneMatch("\"other\", " + etag, etag)).isTrue();
+        assertThat(TemplatePreviewService.matchesIfNoneMatch("W/" + etag, etag)).isTrue();
+        assertThat(TemplatePreviewService.matchesIfNoneMatch("*", etag)).isTrue();
+        assertThat(TemplatePreviewService.matchesIfNoneMatch("\"other\"", etag)).isFalse();
+        assertThat(TemplatePreviewService.matchesIfNoneMatch(null, etag)).isFalse();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.identity.service;
+
+import com.example.identity.configuration.ThymeleafContextFactory;
+import com.example.identity.entity.CV;
+import com.example.identity.entity.Template;
+import com.example.identity.exception.AppException;
+import com.example.identity.exception.ErrorCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.support.StaticApplicationContext;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+
+import java.io.StringWriter;
+import java.io.Writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TemplateRenderingServiceTest {
+
+    @Mock
+    private TemplateEngine templateEngine;
+    @Mock
+    private PdfRenderService pdfRenderService;
+
+    private TemplateRenderingService templateRenderingService;
+
+    private CV cv;
+    private Template template;
+
+    @BeforeEach
+    void setUp() {
+        templateRenderingService = new TemplateRenderingService(templateEngine,
+                new ThymeleafContextFactory(new StaticApplicationContext()), pdfRenderService);
+        template = Template.builder().id(5L).compiledFilePath("template_it_modern.html").build();
+        cv = CV.builder().id(1L).cvData(new ObjectMapper().createObjectNode()).build();
+    }
+
+    private void renderWrites(String before) {
+        doAnswer(invocation -> {
+            Writer out = invocation.getArgument(2);
+            out.write(before);
+            throw new TemplateProcessingException("boom");
+        }).when(templateEngine).process(eq("cv/template_it_modern"), any(IContext.class), any(Writer.class));
+    }
+
+    @Test
+    @DisplayName("renderCV(writer) - Lỗi trong body sau khi đã flush head: không ném lỗi, ghi marker cuối trang")
+    void renderCV_failureInBody_writesErrorMarker() {
+        renderWrites("<html><head></head><body><p>part");
+        StringWriter out = new StringWriter();
+
+        templateRenderingService.renderCV(cv, template, out);
+
+        assertThat(out.toString())
+                .startsWith("<html><head></head><body><p>part")
+                .endsWith(TemplateRenderingService.RENDER_ERROR_MARKER);
+    }
+
+    @Test
+    @DisplayName("renderCV(writer) - Lỗi trước khi flush head: ném AppException để trả response lỗi")
+    void renderCV_failureInHead_throws() {
+        renderWrites("<html><head><title>");
+        StringWriter out = new StringWriter();
+
+        assertThatThrownBy(() -> templateRenderingService.renderCV(cv, template, out))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.TEMPLATE_RENDER_FAILED);
+        assertThat(out.toString()).doesNotContain(TemplateRenderingService.RENDER_ERROR_MARKER);
+    }
+}
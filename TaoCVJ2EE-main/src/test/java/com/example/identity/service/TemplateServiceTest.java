@@ -1,12 +1,14 @@
 package com.example.identity.service;
 
 import com.example.identity.dto.request.TemplateRequest;
+import com.example.identity.dto.response.CursorPageResponse;
 import com.example.identity.dto.response.TemplateResponse;
 import com.example.identity.entity.Template;
 import com.example.identity.exception.AppException;
 import com.example.identity.exception.ErrorCode;
 import com.example.identity.mapper.TemplateMapper;
 import com.example.identity.repository.TemplateRepository;
+import com.example.identity.specification.TemplateSpecification;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,10 +17,15 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -35,6 +42,9 @@ public class TemplateServiceTest {
     @Mock
     private TemplateMapper templateMapper;
 
+    @Spy
+    private TemplateSpecification templateSpecification = new TemplateSpecification();
+
 
     @InjectMocks
     private TemplateService templateService;
@@ -71,21 +81,32 @@ public class TemplateServiceTest {
     }
 
     @Test
-    @DisplayName("Test findAll - Trả về danh sách template")
+    @DisplayName("Test findAll - Trả về trang đầu tiên của danh sách template")
     void findAll_success() {
         // Given
-        // Ra lệnh: Khi repo.findAll() được gọi -> trả về 1 list chứa template mẫu
-        when(templateRepository.findAll()).thenReturn(List.of(template));
+        // Ra lệnh: Khi repo.findBy(spec, ...) được gọi -> trả về 1 window chứa template mẫu, còn trang sau
+        Window<Template> window = Window.from(List.of(template), index -> ScrollPosition.forward(Map.of("id", 1L)), true);
+        when(templateRepository.findBy(any(Specification.class), any())).thenReturn(window);
         // Ra lệnh: Khi mapper.toDtoRes() được gọi với template -> trả về templateResponse
         when(templateMapper.toDtoRes(template)).thenReturn(templateResponse);
 
         // When
-        List<TemplateResponse> actualList = templateService.findAll();
+        CursorPageResponse<TemplateResponse> page = templateService.findAll(null, 500);
 
         // Then
-        assertThat(actualList).isNotNull();
-        assertThat(actualList).hasSize(1);
-        assertThat(actualList.get(0).getName()).isEqualTo("Modern CV");
+        assertThat(page.getItems()).hasSize(1);
+        assertThat(page.getItems().get(0).getName()).isEqualTo("Modern CV");
+        assertThat(page.isHasNext()).isTrue();
+        assertThat(KeysetCursor.decode(page.getNextCursor(), Map.of("id", Long.class)).getKeys())
+                .containsEntry("id", 1L);
+    }
+
+    @Test
+    @DisplayName("Test findAll - Cursor không hợp lệ")
+    void findAll_invalidCursor() {
+        assertThatThrownBy(() -> templateService.findAll("not-a-cursor", null))
+                .isInstanceOf(AppException.class)
+                .hasFieldOrPropertyWithValue("errorCode", ErrorCode.INVALID_CURSOR);
     }
 
     @Test
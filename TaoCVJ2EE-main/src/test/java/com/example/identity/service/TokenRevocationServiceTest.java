@@ -0,0 +1,146 @@
+package com.example.identity.service;
+
+import com.example.identity.exception.AppException;
+import com.example.identity.exception.ErrorCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TokenRevocationServiceTest {
+
+    @Mock
+    private RevocationStore revocationStore;
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = new TokenRevocationService(revocationStore, redisTemplate, 1000, 3600, 36000);
+    }
+
+    private static Date inOneHour() {
+        return new Date(System.currentTimeMillis() + 3_600_000);
+    }
+
+    @Test
+    @DisplayName("isRevoked - Sau khi nạp từ store thì kiểm tra trong bộ nhớ, không gọi store")
+    void isRevoked_afterWarmUp_noDatabaseAccess() {
+        when(revocationStore.findExpiringAfter(any(Date.class)))
+                .thenReturn(Map.of("revoked-jti", inOneHour()));
+
+        tokenRevocationService.warmUp();
+
+        assertThat(tokenRevocationService.isRevoked("revoked-jti")).isTrue();
+        assertThat(tokenRevocationService.isRevoked("other-jti")).isFalse();
+        verify(revocationStore, never()).contains(anyString());
+    }
+
+    @Test
+    @DisplayName("isRevoked - Nạp từ store lỗi thì kiểm tra thẳng store")
+    void isRevoked_warmUpFailed_fallsBackToDatabase() {
+        when(revocationStore.findExpiringAfter(any(Date.class))).thenThrow(new IllegalStateException("store down"));
+        when(revocationStore.contains("revoked-jti")).thenReturn(true);
+
+        tokenRevocationService.warmUp();
+
+        assertThat(tokenRevocationService.isRevoked("revoked-jti")).isTrue();
+    }
+
+    @Test
+    @DisplayName("revoke - Lưu store với TTL tới hết hạn refresh, thêm vào blacklist local và báo các node khác")
+    void revoke_savesAndPublishes() {
+        when(revocationStore.findExpiringAfter(any(Date.class))).thenReturn(Map.of());
+        tokenRevocationService.warmUp();
+        doThrow(new RedisConnectionFailureException("redis down"))
+                .when(redisTemplate).convertAndSend(anyString(), anyString());
+
+        tokenRevocationService.revoke("jti-1", inOneHour());
+
+        // TTL = còn 1h tới exp + 9h refresh được
+        verify(revocationStore).save(eq("jti-1"), any(Date.class),
+                argThat(ttl -> ttl.compareTo(Duration.ofHours(10)) <= 0 && ttl.compareTo(Duration.ofHours(9)) > 0));
+        verify(redisTemplate).convertAndSend(eq(TokenRevocationService.REVOCATION_CHANNEL), startsWith("jti-1:"));
+        assertThat(tokenRevocationService.isRevoked("jti-1")).isTrue();
+    }
+
+    @Test
+    @DisplayName("isRevoked - Chưa nạp xong mà store lỗi thì ném TOKEN_REVOCATION_UNAVAILABLE, không thành 500")
+    void isRevoked_storeDownBeforeWarmUp_throwsControlledError() {
+        when(revocationStore.contains("jti-1")).thenThrow(new RedisConnectionFailureException("redis down"));
+
+        assertThatThrownBy(() -> tokenRevocationService.isRevoked("jti-1"))
+                .isInstanceOf(AppException.class)
+                .extracting("errorCode").isEqualTo(ErrorCode.TOKEN_REVOCATION_UNAVAILABLE);
+    }
+
+    @Test
+    @DisplayName("revoke - Store lỗi: vẫn chặn ở node này, báo các node khác, rồi ném TOKEN_REVOCATION_UNAVAILABLE")
+    void revoke_storeDown_blocksLocallyAndThrowsControlledError() {
+        doThrow(new RedisConnectionFailureException("redis down"))
+                .when(revocationStore).save(anyString(), any(Date.class), any(Duration.class));
+
+        assertThatThrownBy(() -> tokenRevocationService.revoke("jti-1", inOneHour()))
+                .isInstanceOf(AppException.class)
+                .extracting("errorCode").isEqualTo(ErrorCode.TOKEN_REVOCATION_UNAVAILABLE);
+
+        verify(redisTemplate).convertAndSend(eq(TokenRevocationService.REVOCATION_CHANNEL), startsWith("jti-1:"));
+        // Chưa nạp xong nhưng jti vừa thu hồi ở node này không cần hỏi store
+        assertThat(tokenRevocationService.isRevoked("jti-1")).isTrue();
+        verify(revocationStore, never()).contains(anyString());
+    }
+
+    @Test
+    @DisplayName("onMessage - jti thu hồi ở node khác có hiệu lực ngay, message hết hạn bị bỏ qua")
+    void onMessage_addsRemoteRevocation() {
+        when(revocationStore.findExpiringAfter(any(Date.class))).thenReturn(Map.of());
+        tokenRevocationService.warmUp();
+
+        tokenRevocationService.onMessage(message("remote-jti:" + inOneHour().getTime()), null);
+        tokenRevocationService.onMessage(message("old-jti:" + (System.currentTimeMillis() - 1000)), null);
+        tokenRevocationService.onMessage(message("malformed"), null);
+
+        assertThat(tokenRevocationService.isRevoked("remote-jti")).isTrue();
+        assertThat(tokenRevocationService.isRevoked("old-jti")).isFalse();
+    }
+
+    @Test
+    @DisplayName("resync - Bỏ entry đã quá hạn refresh khỏi blacklist")
+    void resync_dropsExpiredEntries() throws InterruptedException {
+        when(revocationStore.findExpiringAfter(any(Date.class))).thenReturn(Map.of());
+        tokenRevocationService.warmUp();
+        tokenRevocationService.onMessage(message("short-jti:" + (System.currentTimeMillis() + 50)), null);
+        assertThat(tokenRevocationService.isRevoked("short-jti")).isTrue();
+
+        Thread.sleep(100);
+        tokenRevocationService.resync();
+
+        assertThat(tokenRevocationService.isRevoked("short-jti")).isFalse();
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(TokenRevocationService.REVOCATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}